@@ -0,0 +1,107 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Mathf;
+import arc.math.Rand;
+import arc.struct.Seq;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One update frame of every falling asteroid, for a single rock and for meteor showers.
+ * baseline mirrors the old AsteroidMod.updateAsteroids: a Seq of objects, a new toRemove Seq every frame
+ * and removeAll. pool is AsteroidPool. Impacted rocks are respawned so the count stays constant;
+ * divide the score by the rock count for the cost per asteroid, which should stay flat for pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsteroidPoolBenchmark {
+    @Param({"1", "100", "500"})
+    public int rocks;
+
+    static final float distance = 200f, speed = 6f, spread = 300f;
+
+    // Same fields as the old AsteroidMod.Asteroid
+    static class ObjectAsteroid {
+        float startX, startY, targetX, targetY, x, y, angle;
+        float speed, progress, totalDistance, warningTime, currentWarning;
+        boolean impacted;
+    }
+
+    final Rand rand = new Rand(5);
+    Seq<ObjectAsteroid> objects;
+    AsteroidPool pool;
+    int impacts;
+    final AsteroidPool.ImpactListener countImpact = (p, i) -> impacts++;
+
+    @Setup
+    public void setup() {
+        objects = new Seq<>();
+        pool = new AsteroidPool(16);
+        for (int i = 0; i < rocks; i++) {
+            objects.add(spawnObject());
+            spawnPooled();
+        }
+    }
+
+    ObjectAsteroid spawnObject() {
+        ObjectAsteroid a = new ObjectAsteroid();
+        a.targetX = rand.random(4000f);
+        a.targetY = rand.random(4000f);
+        a.angle = rand.random(360f);
+        a.startX = a.targetX + Mathf.cosDeg(a.angle + 180) * distance;
+        a.startY = a.targetY + Mathf.sinDeg(a.angle + 180) * distance;
+        a.x = a.startX;
+        a.y = a.startY;
+        a.totalDistance = distance;
+        a.speed = speed;
+        a.warningTime = rand.random(spread);
+        return a;
+    }
+
+    void spawnPooled() {
+        pool.add(rand.random(4000f), rand.random(4000f), rand.random(360f), distance, speed, rand.random(spread), 1, 0.25f, null);
+    }
+
+    @Benchmark
+    public int baseline() {
+        Seq<ObjectAsteroid> toRemove = new Seq<>();
+
+        for (int i = 0; i < objects.size; i++) {
+            ObjectAsteroid a = objects.get(i);
+            if (a.impacted) { toRemove.add(a); continue; }
+
+            if (a.currentWarning < a.warningTime) {
+                a.currentWarning += 1f;
+                continue;
+            }
+
+            a.progress += (a.speed * 1f) / a.totalDistance;
+            a.progress = Mathf.clamp(a.progress, 0f, 1f);
+            a.x = Mathf.lerp(a.startX, a.targetX, a.progress);
+            a.y = Mathf.lerp(a.startY, a.targetY, a.progress);
+
+            float distToTarget = Mathf.dst(a.x, a.y, a.targetX, a.targetY);
+            if (a.progress >= 0.99f || distToTarget < 16f) a.impacted = true;
+        }
+
+        if (toRemove.size > 0) {
+            objects.removeAll(toRemove);
+            for (int i = 0; i < toRemove.size; i++) objects.add(spawnObject());
+        }
+        return objects.size;
+    }
+
+    @Benchmark
+    public int pool() {
+        impacts = 0;
+        pool.update(1f, countImpact);
+
+        for (int i = 0; i < impacts; i++) spawnPooled();
+        return pool.size;
+    }
+}
@@ -0,0 +1,119 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Mathf;
+import arc.math.geom.Point2;
+import arc.struct.Seq;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collecting the breakable buildings in an earthquake disk.
+ * baseline mirrors the original EarthquakeMod.findBreakableBlocks loop (sqrt per cell, Seq.contains dedupe),
+ * collector feeds the same stencil walk into the RegionCollector used by the mod.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectBenchmark {
+    @Param({"0.3", "0.8"})
+    public float density;
+
+    @Param({"0", "0.6"})
+    public float multiblockMix;
+
+    @Param({"8", "20"})
+    public int radius;
+
+    StubWorld world;
+    final RegionCollector collector = new RegionCollector();
+
+    @Setup
+    public void setup() {
+        world = new StubWorld(500, 500, density, multiblockMix, 1);
+    }
+
+    @Benchmark
+    public int baseline() {
+        Seq<StubWorld.StubBuild> checked = new Seq<>();
+        Seq<StubWorld.StubBuild> breakable = new Seq<>();
+        int cx = world.hotX, cy = world.hotY;
+
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                if (Mathf.dst(0, 0, dx, dy) > radius) continue;
+
+                int x = cx + dx, y = cy + dy;
+                if (x < 0 || y < 0 || x >= world.width || y >= world.height) continue;
+                StubWorld.StubBuild b = world.build[x + y * world.width];
+                if (b == null || !b.breakable) continue;
+
+                if (b.size > 1) {
+                    if (!checked.contains(b)) {
+                        checked.add(b);
+                        breakable.add(b);
+                    }
+                } else {
+                    breakable.add(b);
+                }
+            }
+        }
+        return breakable.size;
+    }
+
+    @Benchmark
+    public int stencil() {
+        Seq<StubWorld.StubBuild> checked = new Seq<>();
+        Seq<StubWorld.StubBuild> breakable = new Seq<>();
+        int cx = world.hotX, cy = world.hotY;
+        int[] rows = DiskStencil.spans(radius);
+
+        for (int dy = Math.max(-radius, -cy); dy <= Math.min(radius, world.height - 1 - cy); dy++) {
+            int half = rows[dy + radius];
+            int row = (cy + dy) * world.width;
+            for (int x = Math.max(cx - half, 0); x <= Math.min(cx + half, world.width - 1); x++) {
+                StubWorld.StubBuild b = world.build[row + x];
+                if (b == null || !b.breakable) continue;
+
+                if (b.size > 1) {
+                    if (!checked.contains(b)) {
+                        checked.add(b);
+                        breakable.add(b);
+                    }
+                } else {
+                    breakable.add(b);
+                }
+            }
+        }
+        return breakable.size;
+    }
+
+    @Benchmark
+    public int collector() {
+        collector.clear();
+        int cx = world.hotX, cy = world.hotY;
+        int[] rows = DiskStencil.spans(radius);
+
+        for (int dy = Math.max(-radius, -cy); dy <= Math.min(radius, world.height - 1 - cy); dy++) {
+            int half = rows[dy + radius];
+            int y = cy + dy;
+            int row = y * world.width;
+            for (int x = Math.max(cx - half, 0); x <= Math.min(cx + half, world.width - 1); x++) {
+                StubWorld.StubBuild b = world.build[row + x];
+                if (b == null || !b.breakable) continue;
+
+                if (b.size > 1) {
+                    if (collector.markBuilding(Point2.pack(b.center % world.width, b.center / world.width))) {
+                        collector.positions.add(Point2.pack(b.center % world.width, b.center / world.width));
+                    }
+                } else {
+                    collector.positions.add(Point2.pack(x, y));
+                }
+            }
+        }
+        return collector.size();
+    }
+}
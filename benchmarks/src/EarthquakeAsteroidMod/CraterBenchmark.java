@@ -0,0 +1,87 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Mathf;
+import arc.math.Rand;
+import arc.util.noise.Simplex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating the floor of an asteroid crater.
+ * baseline mirrors AsteroidMod.placeCrater + genTile: sqrt per cell, a new TileGen and Vec3 per tile,
+ * and a full noise evaluation for every alien floor (Simplex stands in for the planet generator).
+ * plan runs CraterPlan.compute on a copy of the area, with the generator floors resolved beforehand
+ * like CraterPlan.capture does on the main thread (a warm FloorCache).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CraterBenchmark {
+    @Param({"4", "12"})
+    public int radius;
+
+    StubWorld world;
+    final Rand rand = new Rand(3);
+
+    // Stand-ins for TileGen and Vec3, allocated per tile like the original code
+    static class StubTileGen {
+        short floor;
+    }
+
+    static class StubVec {
+        float x, y, z;
+    }
+
+    CraterPlan plan;
+
+    @Setup
+    public void setup() {
+        world = new StubWorld(500, 500, 0.5f, 0.3f, 3);
+        // No ores, the baseline only places floors
+        plan = world.crater(world.hotX, world.hotY, radius, 3, new int[0]);
+    }
+
+    @Benchmark
+    public int baseline() {
+        int cx = world.hotX, cy = world.hotY;
+        int placed = 0;
+
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                float dist = Mathf.dst(0, 0, dx, dy);
+                if (dist > radius) continue;
+
+                int index = (cx + dx) + (cy + dy) * world.width;
+                if (dist <= radius * 0.8f && rand.chance(0.8)) {
+                    world.floor[index] = StubWorld.floorCharr;
+                } else {
+                    world.floor[index] = genFloor(index);
+                }
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    @Benchmark
+    public int plan() {
+        return plan.compute();
+    }
+
+    short genFloor(int index) {
+        return genFloor(index, new StubTileGen(), new StubVec());
+    }
+
+    short genFloor(int index, StubTileGen tg, StubVec pos) {
+        pos.x = (index % world.width) / (float) world.width * 2 - 1;
+        pos.z = (index / world.width) / (float) world.height * 2 - 1;
+
+        float noise = Simplex.noise2d(0, 5, 0.5, 1 / 3.0, pos.x, pos.z);
+        tg.floor = (short) (10 + (int) (noise * 8));
+        return tg.floor;
+    }
+}
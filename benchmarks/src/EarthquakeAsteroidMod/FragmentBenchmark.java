@@ -0,0 +1,65 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fragment-vs-fragment collision pass of a broken up asteroid, at the same fragment density for every count
+ * (a bigger rock spreads its fragments over a bigger area). baseline compares every pair, hash is
+ * FragmentPool.collide through the SpatialHash. Divide the score by the fragment count: it should stay
+ * flat for hash and grow linearly for baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FragmentBenchmark {
+    @Param({"50", "200", "1000"})
+    public int fragments;
+
+    // World units squared per fragment
+    static final float areaPerFragment = 150f;
+
+    FragmentPool pool;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Rand rand = new Rand(3);
+        float side = (float) Math.sqrt(fragments * areaPerFragment);
+        pool = new FragmentPool(fragments);
+        for (int i = 0; i < fragments; i++) {
+            pool.add(rand.random(side), rand.random(side), 20f + rand.range(6f), rand.range(0.6f), rand.range(0.6f), 0f, 0f, 1, 0.15f);
+        }
+    }
+
+    @Benchmark
+    public int baseline() {
+        float d = FragmentPool.collideDistance;
+        int collisions = 0;
+        for (int i = 0; i < pool.size; i++) {
+            for (int j = i + 1; j < pool.size; j++) {
+                float dx = pool.x[j] - pool.x[i], dy = pool.y[j] - pool.y[i], dz = pool.z[j] - pool.z[i];
+                float d2 = dx * dx + dy * dy + dz * dz;
+                if (d2 >= d * d || d2 == 0f) continue;
+
+                float push = (d - (float) Math.sqrt(d2)) / (float) Math.sqrt(d2) * 0.025f;
+                pool.vx[i] -= dx * push;
+                pool.vy[i] -= dy * push;
+                pool.vx[j] += dx * push;
+                pool.vy[j] += dy * push;
+                collisions++;
+            }
+        }
+        return collisions;
+    }
+
+    @Benchmark
+    public int hash() {
+        pool.collide();
+        return pool.collisions;
+    }
+}
@@ -0,0 +1,80 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placing ores in a crater.
+ * baseline mirrors the retry loop of AsteroidMod.placeCrater. It is capped here so a crater without
+ * eligible tiles can't hang the benchmark, the attempts counter shows how hard it spins. Instead of
+ * writing overlays it stamps the tiles it takes with the call number, so nothing has to be restored.
+ * crater runs CraterPlan.placeOres, which collects the eligible tiles of the disk in one pass and picks
+ * from them with OreSampler, its cost doesn't depend on how much of the crater is blocked.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OreBenchmark {
+    static final int radius = 12, maxAttempts = 100_000, oreCount = 7;
+
+    // Share of the crater that is water or already has an overlay
+    @Param({"0.1", "0.9", "0.99"})
+    public float blockedShare;
+
+    StubWorld world;
+    final Rand rand = new Rand(4);
+    // Call that took each tile, a tile is free if its stamp isn't the current call
+    int[] taken;
+    int call;
+    CraterPlan plan;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Attempts {
+        public long attempts;
+    }
+
+    @Setup
+    public void setup() {
+        world = new StubWorld(200, 200, 0f, 0f, 4);
+        Rand blocked = new Rand(5);
+        for (int i = 0; i < world.floor.length; i++) {
+            boolean water = blocked.chance(blockedShare);
+            world.floor[i] = water ? StubWorld.floorWater : StubWorld.floorStone;
+            world.surface[i] = (byte) (water ? 0 : 1);
+        }
+        taken = new int[world.floor.length];
+        plan = world.crater(world.hotX, world.hotY, radius, 4, new int[]{1, 2, 3});
+    }
+
+    @Benchmark
+    public int baseline(Attempts counter) {
+        int cx = world.hotX, cy = world.hotY;
+        int spawned = 0;
+        call++;
+
+        for (int attempt = 0; attempt < maxAttempts && spawned < oreCount; attempt++) {
+            counter.attempts++;
+            int index = (cx + rand.random(-radius, radius)) + (cy + rand.random(-radius, radius)) * world.width;
+
+            if (world.surface[index] != 0 && world.overlay[index] == StubWorld.overlayNone && taken[index] != call) {
+                taken[index] = call;
+                rand.random(3);
+                spawned++;
+            }
+        }
+        return spawned;
+    }
+
+    @Benchmark
+    public int crater() {
+        // Ores of the previous call are dropped, like a new crater on the same ground
+        plan.edit.clear();
+        return plan.placeOres(oreCount, rand);
+    }
+}
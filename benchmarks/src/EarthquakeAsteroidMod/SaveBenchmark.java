@@ -0,0 +1,79 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save chunk round trip of in-flight asteroids (AsteroidPool.write/read, the payload of DisasterSave).
+ * Setup checks that a round trip restores every asteroid and that the chunk stays at its fixed size,
+ * then write and read measure the save and load time of the whole pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveBenchmark {
+    @Param({"1000"})
+    public int rocks;
+
+    // Count, then 9 floats and a byte per asteroid
+    static final int bytesPerAsteroid = 9 * 4 + 1 + 8;
+
+    final Rand rand = new Rand(11);
+    AsteroidPool pool;
+    ByteArrayOutputStream buffer;
+    byte[] saved;
+
+    @Setup
+    public void setup() throws IOException {
+        pool = new AsteroidPool(16);
+        for (int i = 0; i < rocks; i++) {
+            int r = pool.add(rand.random(4000f), rand.random(4000f), rand.random(360f), 200f, 6f, rand.random(500f), rand.random(1, 12), 0.25f, null);
+            // Some rocks still warning, some mid-flight
+            pool.warning[r] = rand.random(600f);
+            if (rand.chance(0.5)) pool.breakup[r] = rand.random(0.3f, 0.5f);
+            pool.craterSeed[r] = rand.nextLong();
+        }
+        buffer = new ByteArrayOutputStream(4 + rocks * bytesPerAsteroid);
+        saved = write();
+
+        if (saved.length != 4 + rocks * bytesPerAsteroid) {
+            throw new IllegalStateException("Chunk is " + saved.length + " bytes, expected " + (4 + rocks * bytesPerAsteroid));
+        }
+
+        AsteroidPool loaded = read();
+        if (loaded.size != pool.size) throw new IllegalStateException("Loaded " + loaded.size + " of " + pool.size + " asteroids");
+        for (int i = 0; i < pool.size; i++) {
+            if (loaded.targetX[i] != pool.targetX[i] || loaded.targetY[i] != pool.targetY[i] || loaded.radius[i] != pool.radius[i] ||
+                    loaded.warning[i] != pool.warning[i] || loaded.warningTime[i] != pool.warningTime[i] || loaded.breakup[i] != pool.breakup[i] ||
+                    loaded.craterSeed[i] != pool.craterSeed[i] ||
+                    Math.abs(loaded.startX[i] - pool.startX[i]) > 0.01f || Math.abs(loaded.step[i] - pool.step[i]) > 1e-6f) {
+                throw new IllegalStateException("Asteroid " + i + " differs after loading");
+            }
+        }
+        System.out.println("Chunk payload: " + saved.length + " bytes for " + rocks + " asteroids");
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        buffer.reset();
+        pool.write(new DataOutputStream(buffer));
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public AsteroidPool read() throws IOException {
+        AsteroidPool loaded = new AsteroidPool(16);
+        loaded.read(new DataInputStream(new ByteArrayInputStream(saved)));
+        return loaded;
+    }
+}
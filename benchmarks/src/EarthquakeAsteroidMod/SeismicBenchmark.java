@@ -0,0 +1,54 @@
+package EarthquakeAsteroidMod;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SeismicGrid solver cost at several quake radii (grid side is 2 * (radius + sponge) + 1).
+ * step is one solver step, quake is every step of a quake (what a Wave spreads over the shake,
+ * 50 to 140 frames). parallel=false forces a single thread, true forces row strips on every core,
+ * compare both to see where splitting pays off (SeismicGrid.parallelCells).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeismicBenchmark {
+    @Param({"10", "20", "40", "100"})
+    public int radius;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    SeismicGrid grid;
+    int defaultCells;
+
+    @Setup
+    public void setup() {
+        defaultCells = SeismicGrid.parallelCells;
+        SeismicGrid.parallelCells = parallel ? 0 : Integer.MAX_VALUE;
+        grid = new SeismicGrid(500, 500, radius, 5f);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SeismicGrid.parallelCells = defaultCells;
+    }
+
+    @Benchmark
+    public int step() {
+        grid.step();
+        return grid.steps();
+    }
+
+    @Benchmark
+    public float quake() {
+        SeismicGrid quake = new SeismicGrid(500, 500, radius, 5f);
+        int steps = SeismicGrid.stepsToReach(radius);
+        for (int i = 0; i < steps; i++) quake.step();
+        return quake.peakAt(500 + radius, 500);
+    }
+}
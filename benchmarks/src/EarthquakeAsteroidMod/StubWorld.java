@@ -0,0 +1,160 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import arc.util.noise.Simplex;
+
+/**
+ * Headless in-memory stand-in for a Mindustry world.
+ * Stores floors, overlays and buildings in flat arrays indexed like Tiles (x + y * width),
+ * with clusters of 1x1 and multiblock buildings placed at a configurable density.
+ */
+public class StubWorld {
+    public static final short floorStone = 1, floorWater = 2, floorCharr = 3;
+    public static final short overlayNone = 0;
+
+    /** Stand-in for a Building, shared by every tile it covers like Tile.build */
+    public static class StubBuild {
+        public final int center, size;
+        public boolean breakable = true;
+
+        StubBuild(int center, int size) {
+            this.center = center;
+            this.size = size;
+        }
+    }
+
+    public final int width, height;
+    public final short[] floor, overlay;
+    public final StubBuild[] build;
+    public final byte[] surface;
+    // Center of the densest cluster, where the events are aimed
+    public int hotX, hotY;
+
+    /**
+     * @param width - map width in tiles
+     * @param height - map height in tiles
+     * @param density - chance for a tile inside a cluster to start a building
+     * @param multiblockMix - chance for a building to be 2x2 to 4x4 instead of 1x1
+     * @param seed - random seed, the same arguments always build the same world
+     */
+    public StubWorld(int width, int height, float density, float multiblockMix, long seed) {
+        this.width = width;
+        this.height = height;
+        floor = new short[width * height];
+        overlay = new short[width * height];
+        build = new StubBuild[width * height];
+        surface = new byte[width * height];
+
+        Rand rand = new Rand(seed);
+        for (int i = 0; i < floor.length; i++) {
+            boolean water = rand.chance(0.08);
+            floor[i] = water ? floorWater : floorStone;
+            surface[i] = (byte) (water ? 0 : 1);
+        }
+
+        // Player bases: square clusters, the first one is always in the middle of the map
+        int clusters = Math.max(1, width * height / 6000);
+        for (int c = 0; c < clusters; c++) {
+            int cx = c == 0 ? width / 2 : rand.random(0, width - 1);
+            int cy = c == 0 ? height / 2 : rand.random(0, height - 1);
+            int half = c == 0 ? 30 : rand.random(6, 24);
+            if (c == 0) {
+                hotX = cx;
+                hotY = cy;
+            }
+
+            for (int y = Math.max(cy - half, 0); y < Math.min(cy + half, height); y++) {
+                for (int x = Math.max(cx - half, 0); x < Math.min(cx + half, width); x++) {
+                    if (!rand.chance(density)) continue;
+                    int size = rand.chance(multiblockMix) ? rand.random(2, 4) : 1;
+                    place(x, y, size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Places a building if its whole footprint is free, same offsets as Mindustry multiblocks
+     * @return true if placed
+     */
+    public boolean place(int x, int y, int size) {
+        int offset = (size - 1) / 2;
+        int x1 = x - offset, y1 = y - offset, x2 = x1 + size - 1, y2 = y1 + size - 1;
+        if (x1 < 0 || y1 < 0 || x2 >= width || y2 >= height) return false;
+
+        for (int ty = y1; ty <= y2; ty++) {
+            for (int tx = x1; tx <= x2; tx++) {
+                int i = tx + ty * width;
+                if (build[i] != null || surface[i] == 0) return false;
+            }
+        }
+
+        StubBuild b = new StubBuild(x + y * width, size);
+        for (int ty = y1; ty <= y2; ty++) {
+            for (int tx = x1; tx <= x2; tx++) build[tx + ty * width] = b;
+        }
+        return true;
+    }
+
+    /**
+     * Fills the linked tile indices of a building, like Tile.getLinkedTiles
+     * @return number of indices written
+     */
+    public int linked(StubBuild b, int[] out) {
+        int cx = b.center % width, cy = b.center / width;
+        int offset = (b.size - 1) / 2;
+        int n = 0;
+        for (int ty = cy - offset; ty < cy - offset + b.size; ty++) {
+            for (int tx = cx - offset; tx < cx - offset + b.size; tx++) out[n++] = tx + ty * width;
+        }
+        return n;
+    }
+
+    /**
+     * Copies the area of a crater like CraterPlan.capture. Alien floors come from Simplex noise,
+     * standing in for the planet generator, and never lack a surface.
+     * @param centerX - tile x position of the impact
+     * @param centerY - tile y position of the impact
+     * @param radius - impact radius, the disk must be inside the map
+     * @param seed - seed of the crater
+     * @param ores - ore ids that may spawn
+     * @return the plan, not computed yet
+     */
+    public CraterPlan crater(int centerX, int centerY, int radius, long seed, int[] ores) {
+        CraterPlan.charrId = floorCharr;
+        CraterPlan.airId = overlayNone;
+
+        int side = radius * 2 + 1, x1 = centerX - radius, y1 = centerY - radius;
+        byte[] flags = new byte[side * side];
+        short[] alienFloors = new short[side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int i = x + y * side, index = (x1 + x) + (y1 + y) * width;
+                byte flag = CraterPlan.flagAlienSurface;
+                if (overlay[index] == overlayNone) flag |= CraterPlan.flagOverlayAir;
+                if (surface[index] != 0) flag |= CraterPlan.flagSurface;
+                flags[i] = flag;
+                alienFloors[i] = (short) (10 + (int) (Simplex.noise2d(0, 5, 0.5, 1 / 3.0, (x1 + x) / (float) width, (y1 + y) / (float) height) * 8));
+            }
+        }
+        return CraterPlan.of(centerX, centerY, radius, seed, ores, new int[]{x1, y1, side, side}, flags, alienFloors);
+    }
+
+    /**
+     * @return a density grid of every breakable building tile
+     */
+    public DensityGrid densityGrid() {
+        DensityGrid grid = new DensityGrid(width, height);
+        for (int i = 0; i < build.length; i++) {
+            if (build[i] != null && build[i].breakable) grid.set(i % width, i / width, true);
+        }
+        return grid;
+    }
+
+    /**
+     * @return a target search snapshot of the whole map
+     */
+    public TargetSearch.Snapshot snapshot() {
+        return new TargetSearch.Snapshot(0, 0, width, height, densityGrid().region(0, 0, width, height), surface.clone());
+    }
+}
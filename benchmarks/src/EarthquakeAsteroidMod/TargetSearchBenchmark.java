@@ -0,0 +1,68 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import arc.math.geom.Point2;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the random sampler with the exhaustive search.
+ * Latency comes from the benchmark score, hit quality from the optimalHits / searches counters
+ * (how often the search found a tile as good as the true maximum).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TargetSearchBenchmark {
+    static final int radius = 14, maxRange = 80, attempts = 2000;
+
+    @Param({"200", "500", "1000"})
+    public int mapSize;
+
+    TargetSearch.Snapshot snapshot;
+    int playerX, playerY;
+    int optimum;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Quality {
+        public long searches, optimalHits;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            searches = 0;
+            optimalHits = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        StubWorld world = new StubWorld(mapSize, mapSize, 0.5f, 0.3f, mapSize);
+        snapshot = world.snapshot();
+        playerX = world.hotX;
+        playerY = world.hotY;
+
+        int best = TargetSearch.exhaustive(snapshot, playerX, playerY, radius, maxRange);
+        optimum = best == -1 ? 0 : snapshot.countDisk(Point2.x(best), Point2.y(best), radius);
+    }
+
+    @Benchmark
+    public int sampled(Quality quality) {
+        int pos = TargetSearch.sample(snapshot, playerX, playerY, radius, maxRange, attempts, new Rand());
+        quality.searches++;
+        if (pos != -1 && snapshot.countDisk(Point2.x(pos), Point2.y(pos), radius) >= optimum) quality.optimalHits++;
+        return pos;
+    }
+
+    @Benchmark
+    public int exhaustive(Quality quality) {
+        int pos = TargetSearch.exhaustive(snapshot, playerX, playerY, radius, maxRange);
+        quality.searches++;
+        if (pos != -1 && snapshot.countDisk(Point2.x(pos), Point2.y(pos), radius) >= optimum) quality.optimalHits++;
+        return pos;
+    }
+}
@@ -0,0 +1,112 @@
+package EarthquakeAsteroidMod;
+
+import arc.func.Cons;
+import arc.math.Mathf;
+import mindustry.Vars;
+import mindustry.entities.Units;
+import mindustry.gen.Building;
+import mindustry.gen.Unit;
+import mindustry.world.Tile;
+
+/**
+ * Falloff damage around an impact, for the units of every team and the buildings in a disk.
+ * Units are found through the unit quadtree of each team (Units.nearby), so a query only visits the
+ * units near the impact however many the map holds. Damage falls off like Damage.damage: full at the
+ * center, down to minFalloff at the edge. Buildings only die once the damage, after armor, exceeds their health,
+ * their removal is queued in a TerrainEdit. Everything is reused, an impact doesn't allocate.
+ */
+public class AreaDamage {
+    /** Share of the damage dealt at the edge of the area */
+    public static float minFalloff = 0.4f;
+
+    private final RegionCollector region = new RegionCollector();
+    private final Cons<Unit> damageUnit = this::damageUnit;
+
+    // Area of the current unit query
+    private float x, y, range, amount;
+
+    /** Units hit and damage dealt to them by the last units call */
+    public int unitsHit;
+    public float unitDamage;
+    /** Buildings destroyed and damaged by the last buildings call */
+    public int destroyed, damaged;
+
+    /**
+     * @param dst - distance to the center
+     * @param range - radius of the area
+     * @return multiplier of the damage at that distance, 0 outside the area
+     */
+    public static float falloff(float dst, float range) {
+        if (dst > range) return 0f;
+        return Mathf.lerp(1f - dst / range, 1f, minFalloff);
+    }
+
+    /**
+     * Damages every unit of every team touching the area
+     * @param x - world x position of the center
+     * @param y - world y position of the center
+     * @param range - radius of the area in world units
+     * @param amount - damage at the center
+     * @return number of units hit
+     */
+    public int units(float x, float y, float range, float amount) {
+        this.x = x;
+        this.y = y;
+        this.range = range;
+        this.amount = amount;
+        unitsHit = 0;
+        unitDamage = 0f;
+
+        // The quadtrees hold hitboxes, so units only partly inside the square are found too
+        Units.nearby(x - range, y - range, range * 2f, range * 2f, damageUnit);
+        return unitsHit;
+    }
+
+    private void damageUnit(Unit unit) {
+        if (unit.dead()) return;
+
+        float dst = Math.max(Mathf.dst(unit.x, unit.y, x, y) - unit.hitSize / 2f, 0f);
+        float scale = falloff(dst, range);
+        if (scale <= 0f) return;
+
+        unit.damage(amount * scale);
+        unitsHit++;
+        unitDamage += amount * scale;
+    }
+
+    /**
+     * Damages the breakable buildings of a disk, measured from the edge of each building.
+     * Blocks whose health is below the damage are queued for removal instead.
+     * @param tileX - tile x position of the center
+     * @param tileY - tile y position of the center
+     * @param radius - radius of the disk in tiles
+     * @param amount - damage at the center, per tile of block size
+     * @param edit - edit the destroyed blocks are removed with
+     * @return number of buildings destroyed
+     */
+    public int buildings(int tileX, int tileY, int radius, float amount, TerrainEdit edit) {
+        destroyed = damaged = 0;
+        float reach = Math.max(radius, 1) * Vars.tilesize;
+        float centerX = tileX * Vars.tilesize, centerY = tileY * Vars.tilesize;
+
+        // One position per building (its center tile), multiblocks crossing the edge included
+        region.collect(tileX, tileY, radius, BlockLogic::isBreakable, false);
+        for (int i = 0; i < region.size(); i++) {
+            Tile tile = region.tile(i);
+            Building build = tile.build;
+            int size = tile.block().size;
+            float dst = Math.max(Mathf.dst(tile.drawx(), tile.drawy(), centerX, centerY) - size * Vars.tilesize / 2f, 0f);
+            float scale = falloff(dst, reach);
+            if (scale <= 0f) continue;
+
+            float damage = amount * size * scale;
+            if (BlockLogic.wouldDestroy(tile, damage)) {
+                if (BlockLogic.destroyTile(tile, edit)) destroyed++;
+            } else if (build != null) {
+                build.damage(damage);
+                damaged++;
+            }
+        }
+        return destroyed;
+    }
+}
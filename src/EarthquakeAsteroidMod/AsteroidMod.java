@@ -4,101 +4,132 @@ import arc.Core;
 import arc.Events;
 import arc.graphics.Color;
 import arc.graphics.g2d.Draw;
-import arc.graphics.g2d.Lines;
 import arc.graphics.g2d.TextureAtlas;
 import arc.graphics.g2d.TextureRegion;
 import arc.math.Mathf;
-import arc.math.geom.Vec3;
+import arc.math.Rand;
+import arc.math.geom.Point2;
 import arc.struct.Seq;
 import arc.util.Log;
 import arc.util.Time;
 import mindustry.Vars;
-import mindustry.content.Blocks;
 import mindustry.content.Planets;
 import mindustry.core.World;
-import mindustry.entities.Effect;
 import mindustry.game.EventType;
+import mindustry.gen.Groups;
 import mindustry.gen.Sounds;
+import mindustry.gen.Unit;
 import mindustry.maps.generators.PlanetGenerator;
-import mindustry.maps.planet.*;
 import mindustry.world.Tile;
-import mindustry.world.TileGen;
-import mindustry.world.blocks.environment.Floor;
-import mindustry.world.blocks.storage.CoreBlock;
 import mindustry.world.Block;
+import mindustry.world.blocks.storage.CoreBlock;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
-import static arc.graphics.g2d.Draw.color;
-import static arc.graphics.g2d.Lines.stroke;
 import static mindustry.content.Blocks.*;
 
 public class AsteroidMod{
     private Block[] oresSerpulo;
     private Block[] oresErekir;
-    private final Seq<Asteroid> activeAsteroids = new Seq<>();
-    // Sprite references loaded from assets/sprites/
-    private final static PlanetGenerator[] planetsGen = new PlanetGenerator[]{Planets.serpulo.generator, Planets.erekir.generator, Planets.tantros.generator};
+    // Every falling asteroid, single ones and shower rocks
+    private final AsteroidPool asteroids = new AsteroidPool(16);
+    private final AsteroidPool.ImpactListener onImpact = this::handleAsteroidImpact;
+    private final AsteroidPool.ImpactListener onBreakup = this::breakUp;
+    // Fragments of the asteroids that broke up, their impacts of a frame are applied as one edit
+    private final FragmentPool fragments = new FragmentPool(64);
+    private final FragmentPool.ImpactListener onFragmentImpact = this::handleFragmentImpact;
+    private final SpatialHash.Visitor onUnitContact = this::unitContact;
+    private final DiskStencil.Visitor charFloor = this::charFloor;
+    private final TerrainEdit fragmentEdit = new TerrainEdit();
+    // Falloff damage of impacts and fragments, blocks they destroy are removed with impactEdit
+    private final AreaDamage areaDamage = new AreaDamage();
+    private final TerrainEdit impactEdit = new TerrainEdit();
+    // Blocks and craters of the small rocks landing in a frame, applied (and synced) once per frame
+    private final TerrainEdit rockEdit = new TerrainEdit();
+    private final CraterPlan rockCraters = CraterPlan.instant(rockEdit);
+    private int fragmentsLanded, fragmentsDestroyed, lastLandedPos;
+    private int rocksLanded, rocksDestroyed, lastRockPos;
+    private long rockNanos;
+    private Unit contactUnit;
+    private static final int maxRange = 80; // Same as earthquake
+    // Radius of the next asteroid, picked in advance so its impact location can be searched in the background
+    private int nextImpactRadius;
+    private TargetPlanner planner;
+    // Set in init, once the planets are loaded
+    private static PlanetGenerator[] planetsGen;
+    // Sprite references loaded from assets/sprites/, resolved on the first frame an asteroid is drawn
+    private static boolean spritesLoaded;
     private static TextureRegion asteroidSprite;
     private static TextureRegion[] tailSprites;
     private static TextureRegion shadowSprite;
 
-    // Inner class for Asteroid
-    //
-    private static class Asteroid {
-        float startX, startY;
-        float targetX, targetY;
-        float x, y;
-        float angle;
-        float speed = 4f;
-        float progress = 0f;
-        float totalDistance;
-        float warningTime = 500f;
-        float currentWarning = 0f;
-        int impactRadius;
-        float size;
-        boolean impacted = false;
-
-        /**
-         * String for ease of logging
-         * @return string with a few of the most important values
-         */
-        public String toString() {
-            return "Asteroid[pos=(" + x + "," + y + "), target=(" + targetX + "," + targetY +
-                    "), warning=" + currentWarning + "/" + warningTime + ", impacted=" + impacted + "]";
-        }
-    }
+    // Flight of a single asteroid
+    private static final float asteroidSpeed = 4f, asteroidDistance = 200f, warningTime = 500f;
+    // Meteor shower: many small rocks falling on an area over a few seconds
+    private static final int showerRadius = 40;
+    // Craters up to this radius are computed at impact instead of planned ahead (shower rocks)
+    private static final int instantCraterRadius = 2;
+    private static final float showerSpread = 300f, showerSpeed = 6f;
+
+    /** Chance for an asteroid of at least breakupRadius to break up on entry */
+    public static float breakupChance = 0.5f;
+    public static int breakupRadius = 7;
+    // Height fragments start falling from, and spread of their speed around the rock's (world units, ticks)
+    private static final float fragmentHeight = 40f, fragmentSpread = 0.6f;
+    // Damage of a fragment hitting a unit, per tile of impact radius
+    private static final float fragmentDamage = 40f;
+    // Heights under which fragments hit ground and flying units
+    private static final float groundHitHeight = 8f, flyingHitHeight = 30f;
+
+    /** Damage at the center of an impact to units, and to blocks per tile of impact radius and block size */
+    public static float impactUnitDamage = 200f, impactBlockDamage = 500f;
+    // Damage of a landing fragment to blocks, per tile of impact radius and of block size
+    private static final float fragmentBlockDamage = 200f;
 
     /**
      * Initializes the asteroid, asteroid will spawn based on a pre-defined chance
      */
     public void init() {
         initializeOres();
-
-        // Try to load sprites
-        Events.on(EventType.ClientLoadEvent.class, e -> {
-            loadSprites();
+        planetsGen = new PlanetGenerator[]{Planets.serpulo.generator, Planets.erekir.generator, Planets.tantros.generator};
+        nextImpactRadius = DisasterRandom.stream(DisasterRandom.events.next(), DisasterRandom.shape).random(4, 12);
+        planner = new TargetPlanner("ASTEROID", maxRange, nextImpactRadius);
+
+        // On average, one asteroid every 6 hours, meteor showers are rarer (one every 12 hours)
+        MainMod.scheduler.register("asteroid", 6 * DisasterScheduler.hour, this::spawnAsteroid);
+        MainMod.scheduler.register("shower", 12 * DisasterScheduler.hour, this::spawnShower);
+
+        // Asteroids of the previous world never land
+        Events.on(EventType.WorldLoadEvent.class, e -> {
+            asteroids.clear();
+            fragments.clear();
         });
 
+        // Clients move the asteroids the server sent them, to draw them
         Events.run(EventType.Trigger.update, () -> {
-            if (!MainMod.isRunning()) return;
-
-            // Chance, on average, of one event every 6 hours
-            if (Mathf.chanceDelta(0.000000772f)) {
-                Log.info("[ASTEROID] ========================================");
-                Log.info("[ASTEROID] *** ASTEROID SPAWN TRIGGERED! ***");
-                Log.info("[ASTEROID] ========================================");
-                spawnAsteroid();
-            }
-
+            if (!MainMod.isRunning() && !MainMod.isClient()) return;
 
             // Update active asteroids
-            if (activeAsteroids.size > 0) {
-                updateAsteroids();
+            if (asteroids.size > 0) {
+                rocksLanded = rocksDestroyed = 0;
+                rockNanos = 0L;
+                asteroids.update(Time.delta, onImpact, onBreakup);
+                if (rockEdit.size() > 0) rockEdit.apply();
+                if (rocksLanded > 0) {
+                    Telemetry.record(Telemetry.Kind.rocksLanded, Point2.x(lastRockPos), Point2.y(lastRockPos), 0,
+                            rocksLanded, rocksDestroyed, rockNanos);
+                }
+            }
+            if (fragments.size > 0) {
+                updateFragments();
             }
         });
 
         // Render asteroids
         Events.run(EventType.Trigger.draw, () -> {
-            if (activeAsteroids.size > 0) {
+            if (asteroids.size > 0 || fragments.size > 0) {
                 renderAsteroids();
             }
         });
@@ -106,6 +137,14 @@ public class AsteroidMod{
         Log.info("[ASTEROID] Mod initialization complete!");
     }
 
+    /**
+     * Draws the radius of the next asteroid again, after the master seed changed
+     */
+    public void reseed() {
+        nextImpactRadius = DisasterRandom.stream(DisasterRandom.events.next(), DisasterRandom.shape).random(4, 12);
+        planner.setRadius(nextImpactRadius);
+    }
+
     /**
      * Intializes ores from certain planets (needed since the original code doesn't store them inside planets)
      */
@@ -125,90 +164,55 @@ public class AsteroidMod{
 
         Seq<Block> oresE = new Seq<>();
 
-        oresS.add(oreTungsten);
-        oresS.add(oreCrystalThorium);
-        oresS.add(wallOreBeryllium);
+        // Floor ores only, wall ores can't go on a crater floor
+        oresE.add(oreBeryllium);
+        oresE.add(oreTungsten);
+        oresE.add(oreCrystalThorium);
 
         oresErekir = oresE.toArray(Block.class);
     }
 
     /**
-     * Loads sprites into the game
+     * Resolves the sprites on first use and caches them, so nothing is looked up at startup.
+     * The atlas scan that lists every matching region only runs when debug logging is on.
      */
     public static void loadSprites() {
-        Log.info("[ASTEROID] ========================================");
-        Log.info("[ASTEROID] LOADING SPRITES - START");
-        Log.info("[ASTEROID] ========================================");
-
+        if (spritesLoaded) return;
         if (Core.atlas == null) {
             Log.err("[ASTEROID] ERROR: Core.atlas is null!");
             return;
         }
-
-        Log.info("[ASTEROID] Core.atlas exists");
-
-        // Log what we're looking for
-        String asteroidName = MainMod.name("asteroid");
-        String shadowName = MainMod.name("asteroid-shadow");
-        String tail1Name = MainMod.name("asteroid-tail-1");
-        String tail2Name = MainMod.name("asteroid-tail-2");
-        String tail3Name = MainMod.name("asteroid-tail-3");
-
-        Log.info("[ASTEROID] Looking for sprite: " + asteroidName);
-        Log.info("[ASTEROID] Looking for sprite: " + shadowName);
-        Log.info("[ASTEROID] Looking for sprite: " + tail1Name);
-        Log.info("[ASTEROID] Looking for sprite: " + tail2Name);
-        Log.info("[ASTEROID] Looking for sprite: " + tail3Name);
-
-        // List ALL sprites that match our mod prefix
-        Log.info("[ASTEROID] ========================================");
-        Log.info("[ASTEROID] Searching for sprites with 'Earthquake' or 'asteroid' in name...");
-        Seq<TextureAtlas.AtlasRegion> regions = Core.atlas.getRegions();
-        int foundCount = 0;
-        for (TextureAtlas.AtlasRegion region : regions) {
-            if (region.name.contains("Earthquake") || region.name.contains("asteroid") ||
-                    region.name.contains("Asteroid")) {
-                Log.info("[ASTEROID] Found matching region: '" + region.name + "'");
-                foundCount++;
+        spritesLoaded = true;
+        long start = Time.nanos();
+
+        // List ALL sprites that match our mod prefix (only when debugging, this scans the whole atlas)
+        if (Telemetry.debug) {
+            Log.info("[ASTEROID] Searching for sprites with 'Earthquake' or 'asteroid' in name...");
+            Seq<TextureAtlas.AtlasRegion> regions = Core.atlas.getRegions();
+            int foundCount = 0;
+            for (TextureAtlas.AtlasRegion region : regions) {
+                if (region.name.contains("Earthquake") || region.name.contains("asteroid") ||
+                        region.name.contains("Asteroid")) {
+                    Log.info("[ASTEROID] Found matching region: '" + region.name + "'");
+                    foundCount++;
+                }
             }
+            Log.info("[ASTEROID] Total matching sprites found: " + foundCount);
         }
-        Log.info("[ASTEROID] Total matching sprites found: " + foundCount);
-        Log.info("[ASTEROID] ========================================");
 
-        // Try to load sprites
-        asteroidSprite = Core.atlas.find(asteroidName);
-        shadowSprite = Core.atlas.find(shadowName);
+        asteroidSprite = Core.atlas.find(MainMod.name("asteroid"));
+        shadowSprite = Core.atlas.find(MainMod.name("asteroid-shadow"));
 
         tailSprites = new TextureRegion[3];
-        tailSprites[0] = Core.atlas.find(tail1Name);
-        tailSprites[1] = Core.atlas.find(tail2Name);
-        tailSprites[2] = Core.atlas.find(tail3Name);
-
-        // Log what we actually got
-        Log.info("[ASTEROID] ========================================");
-        Log.info("[ASTEROID] Loaded asteroidSprite: " + asteroidSprite);
-        Log.info("[ASTEROID] asteroidSprite.found(): " + asteroidSprite.found());
-        Log.info("[ASTEROID] ----------------------------------------");
-        Log.info("[ASTEROID] Loaded shadowSprite: " + shadowSprite);
-        Log.info("[ASTEROID] shadowSprite.found(): " + shadowSprite.found());
-        Log.info("[ASTEROID] ----------------------------------------");
-
-        for (int i = 0; i < tailSprites.length; i++) {
-            Log.info("[ASTEROID] Loaded tailSprite[" + i + "]: " + tailSprites[i]);
-            Log.info("[ASTEROID] tailSprite[" + i + "].found(): " + tailSprites[i].found());
-        }
-        Log.info("[ASTEROID] ========================================");
+        tailSprites[0] = Core.atlas.find(MainMod.name("asteroid-tail-1"));
+        tailSprites[1] = Core.atlas.find(MainMod.name("asteroid-tail-2"));
+        tailSprites[2] = Core.atlas.find(MainMod.name("asteroid-tail-3"));
 
         // Check if sprites loaded successfully
         boolean hasAsteroid = asteroidSprite.found();
         boolean hasShadow = shadowSprite.found();
         boolean hasTails = tailSprites[0].found() && tailSprites[1].found() && tailSprites[2].found();
 
-        Log.info("[ASTEROID] Summary:");
-        Log.info("[ASTEROID] - Asteroid sprite found: " + hasAsteroid);
-        Log.info("[ASTEROID] - Shadow sprite found: " + hasShadow);
-        Log.info("[ASTEROID] - All tail sprites found: " + hasTails);
-
         if (!hasAsteroid || !hasShadow || !hasTails) {
             Log.warn("[ASTEROID] ========================================");
             Log.warn("[ASTEROID] WARNING: Some sprites not found!");
@@ -225,10 +229,8 @@ public class AsteroidMod{
             Log.warn("[ASTEROID] 3. Rebuild with: gradlew jar");
             Log.warn("[ASTEROID] 4. Check mod.hjson name field (currently looking for prefix: '" + MainMod.name("") + "')");
             Log.warn("[ASTEROID] ========================================");
-        } else {
-            Log.info("[ASTEROID] ========================================");
-            Log.info("[ASTEROID] SUCCESS: All sprites loaded!");
-            Log.info("[ASTEROID] ========================================");
+        } else if (Telemetry.debug) {
+            Log.info("[ASTEROID] SUCCESS: All sprites loaded in " + Time.timeSinceNanos(start) / 1000 + "us");
         }
     }
 
@@ -236,377 +238,392 @@ public class AsteroidMod{
      * Spawns an asteroid, assigns values to variables in Asteroid, such as the target tile position and asteroid distance
      */
     private void spawnAsteroid() {
-        Log.info("[ASTEROID] spawnAsteroid() called");
-
-        Asteroid asteroid = new Asteroid();
+        long start = Time.nanos();
+        long seed = DisasterRandom.events.next();
+        Rand rand = DisasterRandom.stream(seed, DisasterRandom.shape);
 
         // Random impact radius
-        asteroid.impactRadius = Mathf.random(4, 12);
-        asteroid.size = Mathf.map(asteroid.impactRadius, 4, 12, 0.7f, 1.5f);
-        Log.info("[ASTEROID] Impact radius: " + asteroid.impactRadius + ", size: " + asteroid.size);
+        int impactRadius = nextImpactRadius;
+        nextImpactRadius = rand.random(4, 12);
 
-        // Find valid impact location (using shared method)
-        int maxRange = 80; // Same as earthquake
-        Log.info("[ASTEROID] Searching for valid impact location near player...");
-        Tile impactTile = BlockLogic.findValidTargetNearPlayer(asteroid.impactRadius, maxRange);
+        // Use the location found in the background, or the shared method if it went stale
+        Tile impactTile = planner.take(impactRadius);
+        if (impactTile == null) impactTile = BlockLogic.findValidTargetNearPlayer(impactRadius, maxRange, DisasterRandom.stream(seed, DisasterRandom.target));
+        planner.setRadius(nextImpactRadius);
+        PhaseTimes.record(PhaseTimes.Phase.asteroidTarget, Time.timeSinceNanos(start));
 
         if (impactTile == null) {
             Log.warn("[ASTEROID] !!!! NO VALID IMPACT LOCATION FOUND !!!!");
             return;
         }
 
-        Log.info("[ASTEROID] Found valid tile at (" + impactTile.x + ", " + impactTile.y + ")");
-
-        asteroid.targetX = impactTile.worldx();
-        asteroid.targetY = impactTile.worldy();
-        Log.info("[ASTEROID] Target world coords: (" + asteroid.targetX + ", " + asteroid.targetY + ")");
+        // Any direction
+        float angle = rand.random(360f);
+        // Big rocks may break up on entry, somewhere between 30% and 50% of the flight
+        float breakup = impactRadius >= breakupRadius && rand.chance(breakupChance) ? rand.random(0.3f, 0.5f) : 2f;
+
+        // Starting position is asteroidDistance away, opposite to the flight direction
+        long phase = Time.nanos();
+        // Fragments make their own small craters
+        long craterSeed = DisasterRandom.split(seed, DisasterRandom.crater);
+        CraterPlan crater = breakup <= 1f ? null :
+                CraterPlan.start(impactTile.x, impactTile.y, impactRadius, craterSeed, planetsGen, currentOres());
+        int index = addAsteroid(impactTile.worldx(), impactTile.worldy(), angle, impactRadius, warningTime, breakup, craterSeed, crater);
+        EventSync.asteroid(impactTile.worldx(), impactTile.worldy(), angle, impactRadius, warningTime, breakup, craterSeed);
+        PhaseTimes.record(PhaseTimes.Phase.asteroidSpawn, Time.timeSinceNanos(phase));
+
+        Telemetry.record(Telemetry.Kind.asteroidSpawned, impactTile.x, impactTile.y, impactRadius,
+                (int) (asteroids.scale[index] * 100), (int) angle, Time.timeSinceNanos(start), seed);
+    }
 
-        // Choose random diagonal direction
-        int[] angles = {45, 135, 225, 315};
-        asteroid.angle = angles[Mathf.random(angles.length - 1)];
-        Log.info("[ASTEROID] Chosen angle: " + asteroid.angle + " degrees");
+    /**
+     * Adds a falling asteroid, spawned here or by the server
+     * @param targetX - world x position of the impact
+     * @param targetY - world y position of the impact
+     * @param angle - direction of the flight
+     * @param radius - impact radius
+     * @param warningTime - ticks of warning before the flight
+     * @param breakup - flight progress the asteroid breaks up at, above 1 if it doesn't
+     * @param craterSeed - seed of its crater and fragments
+     * @param crater - crater planned ahead, null to compute it at impact (or never, on clients)
+     * @return index of the asteroid in the pool
+     */
+    int addAsteroid(float targetX, float targetY, float angle, int radius, float warningTime, float breakup, long craterSeed, CraterPlan crater) {
+        float size = Mathf.map(radius, 4, 12, 0.7f, 1.5f);
+        int index = asteroids.add(targetX, targetY, angle, asteroidDistance, asteroidSpeed, warningTime, radius, size, crater);
+        asteroids.breakup[index] = breakup;
+        asteroids.craterSeed[index] = craterSeed;
+        return index;
+    }
 
-        // Calculate starting position - REDUCED from 400f to 200f
-        float distance = 200f; // Closer starting distance
-        asteroid.startX = asteroid.targetX + Mathf.cosDeg(asteroid.angle + 180) * distance;
-        asteroid.startY = asteroid.targetY + Mathf.sinDeg(asteroid.angle + 180) * distance;
-        asteroid.x = asteroid.startX;
-        asteroid.y = asteroid.startY;
-        Log.info("[ASTEROID] Start position: (" + asteroid.startX + ", " + asteroid.startY + ")");
+    /**
+     * Spawns a meteor shower, 100 to 500 small rocks falling around a target over a few seconds
+     */
+    private void spawnShower() {
+        long start = Time.nanos();
+        long seed = DisasterRandom.events.next();
+        Tile center = BlockLogic.findValidTargetNearPlayer(showerRadius, maxRange, DisasterRandom.stream(seed, DisasterRandom.target));
 
-        asteroid.totalDistance = Mathf.dst(asteroid.startX, asteroid.startY,
-                asteroid.targetX, asteroid.targetY);
-        Log.info("[ASTEROID] Total distance: " + asteroid.totalDistance);
+        if (center == null) {
+            Log.warn("[ASTEROID] No valid meteor shower location found!");
+            return;
+        }
 
-        asteroid.speed = 4f;
+        int rocks = addShower(center, seed);
+        EventSync.shower(center, seed);
 
-        activeAsteroids.add(asteroid);
-        Log.info("[ASTEROID] Added to activeAsteroids list. Total active: " + activeAsteroids.size);
-        Log.info("[ASTEROID] ========================================");
+        long nanos = Time.timeSinceNanos(start);
+        PhaseTimes.record(PhaseTimes.Phase.showerSpawn, nanos);
+        Telemetry.record(Telemetry.Kind.showerSpawned, center.x, center.y, showerRadius, rocks, asteroids.size, nanos, seed);
     }
 
     /**
-     * Updates asteroid parameters as they advance towards the floor
+     * Adds the rocks of a meteor shower, the same ones for the same seed
+     * @param center - tile the shower falls around
+     * @param seed - seed of the shower
+     * @return number of rocks drawn, the ones over tiles without surface are skipped
      */
-    private void updateAsteroids() {
-        if (activeAsteroids.size == 0) return;
-
-        Seq<Asteroid> toRemove = new Seq<>();
-
-        for (int i = 0; i < activeAsteroids.size; i++) {
-            Asteroid asteroid = activeAsteroids.get(i);
-
-            /*if (updateCounter % 60 == 0)
-                Log.info("[ASTEROID] Updating asteroid " + i + ": " + asteroid);*/
+    int addShower(Tile center, long seed) {
+        Rand rand = DisasterRandom.stream(seed, DisasterRandom.shape);
+        int rocks = rand.random(100, 500);
+        // Every rock of a shower comes from the same direction
+        float angle = rand.random(360f);
+        long craterSeed = DisasterRandom.split(seed, DisasterRandom.crater);
+
+        for (int i = 0; i < rocks; i++) {
+            Tile tile = Vars.world.tile(center.x + rand.range(showerRadius), center.y + rand.range(showerRadius));
+            if (tile == null || !tile.floor().hasSurface()) continue;
+
+            // Mostly 1 tile rocks, a quarter of them slightly bigger. Their craters are computed at impact
+            int radius = rand.chance(0.25) ? 2 : 1;
+            int index = asteroids.add(tile.worldx(), tile.worldy(), angle + rand.range(8f), asteroidDistance, showerSpeed,
+                    warningTime + rand.random(showerSpread), radius, radius * 0.25f, null);
+            asteroids.craterSeed[index] = DisasterRandom.split(craterSeed, i);
+        }
+        return rocks;
+    }
 
+    /**
+     * Breaks an asteroid into fragments. They keep the speed of the rock, spread around it, and fall
+     * from fragmentHeight with a gravity that brings them down around the target of the rock.
+     * @param pool - pool of the asteroid
+     * @param index - index of the asteroid breaking up
+     */
+    private void breakUp(AsteroidPool pool, int index) {
+        long start = Time.nanos();
+        // Drawn from the asteroid, so clients break it up the same way
+        long seed = pool.craterSeed[index];
+        Rand rand = DisasterRandom.stream(seed, DisasterRandom.shape);
+
+        int radius = pool.radius[index];
+        int count = radius * rand.random(4, 12);
+        float x = pool.x[index], y = pool.y[index];
+        // Velocity of the rock, and ticks it had left before the impact
+        float vx = (pool.targetX[index] - pool.startX[index]) * pool.step[index];
+        float vy = (pool.targetY[index] - pool.startY[index]) * pool.step[index];
+        float ticksLeft = Math.max((1f - pool.progress[index]) / pool.step[index], 1f);
+        float gravity = 2f * fragmentHeight / (ticksLeft * ticksLeft);
+
+        for (int i = 0; i < count; i++) {
+            int fragmentRadius = rand.chance(0.2) ? 2 : 1;
+            fragments.add(x + rand.range(4f), y + rand.range(4f), fragmentHeight + rand.range(6f),
+                    vx + rand.range(fragmentSpread), vy + rand.range(fragmentSpread), rand.range(0.2f),
+                    gravity, fragmentRadius, fragmentRadius * rand.random(0.12f, 0.2f));
+        }
 
-            if (asteroid.impacted) { toRemove.add(asteroid); continue; }
+        Telemetry.record(Telemetry.Kind.asteroidBrokeUp, World.toTile(x), World.toTile(y), radius, count, fragments.size,
+                Time.timeSinceNanos(start), seed);
+    }
 
-            // Warning phase
-            if (asteroid.currentWarning < asteroid.warningTime) {
-                asteroid.currentWarning += Time.delta;
-                continue;
-            }
+    /**
+     * Moves the fragments, lands the ones reaching the ground and checks them against each other and units
+     */
+    private void updateFragments() {
+        long start = Time.nanos();
+        fragmentsLanded = fragmentsDestroyed = 0;
+
+        fragments.update(Time.delta, onFragmentImpact);
+        fragments.collide();
+
+        // Every unit only looks at the fragments in the hash cells around it. The server deals the damage
+        for (int i = 0; i < Groups.unit.size() && !Vars.net.client(); i++) {
+            contactUnit = Groups.unit.index(i);
+            if (contactUnit.dead()) continue;
+            fragments.hash.each(contactUnit.x, contactUnit.y, contactUnit.hitSize / 2f + FragmentPool.collideDistance, onUnitContact);
+        }
+        contactUnit = null;
 
-            // Move asteroid in a STRAIGHT LINE towards target
-            asteroid.progress += (asteroid.speed * Time.delta) / asteroid.totalDistance;
-            asteroid.progress = Mathf.clamp(asteroid.progress, 0f, 1f);
+        if (fragmentEdit.size() > 0) fragmentEdit.apply();
 
-            // Interpolate position along the straight line from start to target
-            asteroid.x = Mathf.lerp(asteroid.startX, asteroid.targetX, asteroid.progress);
-            asteroid.y = Mathf.lerp(asteroid.startY, asteroid.targetY, asteroid.progress);
+        long nanos = Time.timeSinceNanos(start);
+        PhaseTimes.record(PhaseTimes.Phase.fragmentUpdate, nanos);
+        if (fragmentsLanded > 0) {
+            Telemetry.record(Telemetry.Kind.fragmentsLanded, Point2.x(lastLandedPos), Point2.y(lastLandedPos), 0,
+                    fragmentsLanded, fragmentsDestroyed, nanos);
+        }
+    }
 
-            float distToTarget = Mathf.dst(asteroid.x, asteroid.y, asteroid.targetX, asteroid.targetY);
+    /**
+     * Destroys the blocks under a fragment and chars the floor around it, queued in the frame's edit
+     * @param pool - pool of the fragment
+     * @param index - index of the fragment
+     */
+    private void handleFragmentImpact(FragmentPool pool, int index) {
+        float x = pool.x[index], y = pool.y[index];
+        int tileX = World.toTile(x), tileY = World.toTile(y);
+        if (Vars.world.tile(tileX, tileY) == null) return;
+        int radius = pool.radius[index];
+
+        DisasterEffects.impact(x, y, radius);
+        // One sound per frame, hundreds of fragments can land together
+        if (fragmentsLanded == 0) Sounds.explosion.at(x, y, 2f);
+        fragmentsLanded++;
+        lastLandedPos = Point2.pack(tileX, tileY);
+
+        // Clients get the destroyed blocks and charred floor from the server
+        if (Vars.net.client()) return;
+        fragmentsDestroyed += areaDamage.buildings(tileX, tileY, radius, fragmentBlockDamage * radius, fragmentEdit);
+        DiskStencil.each(tileX, tileY, radius, charFloor);
+    }
 
-            // Check for impact
-            if (asteroid.progress >= 0.99f || distToTarget < 16f) {
-                Log.info("[ASTEROID] *** ASTEROID " + i + " REACHED TARGET! ***");
-                handleAsteroidImpact(asteroid);
-                asteroid.impacted = true;
-            }
+    private void charFloor(Tile tile, int pos, int dst2) {
+        if (tile.floor().hasSurface() && tile.data <= 0 && !(tile.block() instanceof CoreBlock)) {
+            fragmentEdit.setFloor(tile, charr);
         }
+    }
 
-        if (toRemove.size > 0) activeAsteroids.removeAll(toRemove);
-
+    // A fragment near contactUnit, low enough to hit it, explodes on it
+    private void unitContact(int index) {
+        FragmentPool pool = fragments;
+        if (pool.z[index] <= 0f) return;
+        if (pool.z[index] > (contactUnit.isFlying() ? flyingHitHeight : groundHitHeight)) return;
+
+        float reach = contactUnit.hitSize / 2f + pool.radius[index] * Vars.tilesize / 2f;
+        if (Mathf.dst2(pool.x[index], pool.y[index], contactUnit.x, contactUnit.y) > reach * reach) return;
+
+        float damage = fragmentDamage * pool.radius[index];
+        contactUnit.damage(damage);
+        Telemetry.record(Telemetry.Kind.fragmentHit, World.toTile(contactUnit.x), World.toTile(contactUnit.y),
+                pool.radius[index], (int) damage);
+        // Lands on the next update, where it is
+        pool.z[index] = 0f;
+        pool.vz[index] = 0f;
     }
 
     /**
-     * Renders asteroids
+     * Renders asteroids, skipping the ones outside the camera.
+     * All shadows are drawn first, then all tails and bodies, so each layer is set once and the sprites batch.
      */
     private void renderAsteroids() {
-        for (int i = 0; i < activeAsteroids.size; i++) {
-            Asteroid asteroid = activeAsteroids.get(i);
+        loadSprites();
+        AsteroidPool pool = asteroids;
+        float camX = Core.camera.position.x, camY = Core.camera.position.y;
+        float halfW = Core.camera.width / 2f, halfH = Core.camera.height / 2f;
+
+        // Shared by every asteroid of the frame
+        float warningAlpha = Mathf.absin(Time.time * 0.1f, 1f, 0.6f);
+        TextureRegion tail = tailSprites[((int) (Time.time * 0.3f)) % tailSprites.length];
+        float bodyRotation = Time.time * 2f;
+
+        // Shadows on the impact zone
+        Draw.z(29f);
+        for (int i = 0; i < pool.size; i++) {
+            float shadowSize = pool.radius[i] * Vars.tilesize * 2.5f;
+            if (!visible(pool.targetX[i], pool.targetY[i], shadowSize / 2f, camX, camY, halfW, halfH)) continue;
+
+            // Pulsing during warning phase, then from 0.5 to 1.0 during the flight
+            float alpha = pool.isWarning(i) ? warningAlpha : 0.5f + (pool.progress[i] * 0.5f);
+            Draw.color(Color.red, alpha);
+            Draw.rect(shadowSprite, pool.targetX[i], pool.targetY[i], shadowSize, shadowSize);
+        }
 
-            if (asteroid.impacted) continue;
+        // Fragment shadows right under them, darker as they come down
+        FragmentPool frags = fragments;
+        for (int i = 0; i < frags.size; i++) {
+            float shadowSize = frags.radius[i] * Vars.tilesize * 1.5f;
+            if (!visible(frags.x[i], frags.y[i], shadowSize / 2f, camX, camY, halfW, halfH)) continue;
 
-            float alpha;
-            // Pulsing during warning phase
-            if (asteroid.currentWarning < asteroid.warningTime)
-                alpha = Mathf.absin(Time.time * 0.1f, 1f, 0.6f);
-            else alpha = 0.5f + (asteroid.progress * 0.5f); // Starts at 0.5, goes to 1.0
+            Draw.color(Color.black, 0.6f - Math.min(frags.z[i] / fragmentHeight, 1f) * 0.4f);
+            Draw.rect(shadowSprite, frags.x[i], frags.y[i], shadowSize, shadowSize);
+        }
 
-            Draw.z(29f);
-            Draw.color(Color.red, alpha);
-            Draw.rect(shadowSprite, asteroid.targetX, asteroid.targetY,
-                    asteroid.impactRadius * Vars.tilesize * 2.5f,
-                    asteroid.impactRadius * Vars.tilesize * 2.5f);
-            Draw.reset();
-
-            // Only draw the flying asteroid AFTER warning phase
-            if (asteroid.currentWarning < asteroid.warningTime) continue;
-
-            // Draw the flying asteroid
-            Draw.z(110f);
-
-            // Draw tail
-            int frameIndex = ((int) (Time.time * 0.3f)) % tailSprites.length;
-            TextureRegion tail = tailSprites[frameIndex];
-
-            float tailLength = tail.width * asteroid.size * 3 / 2f;
-            float tailX = asteroid.x + Mathf.cosDeg(asteroid.angle + 180) * tailLength;
-            float tailY = asteroid.y + Mathf.sinDeg(asteroid.angle + 180) * tailLength;
-
-            Draw.color(Color.white, 1.0f);
-            Draw.rect(tail, tailX, tailY,
-                    tail.width * asteroid.size * 3f,
-                    tail.height * asteroid.size * 2f,
-                    asteroid.angle + 180);
-
-            // Draw asteroid body
-            Draw.color(Color.white, 1.0f);
-            Draw.rect(asteroidSprite, asteroid.x, asteroid.y,
-                    asteroidSprite.width * asteroid.size * 2,
-                    asteroidSprite.height * asteroid.size * 2,
-                    Time.time * 2f);
-
-            Draw.reset();
+        // Flying asteroids, only AFTER warning phase
+        Draw.z(110f);
+        Draw.color(Color.white, 1.0f);
+        for (int i = 0; i < pool.size; i++) {
+            if (pool.isWarning(i)) continue;
+
+            float size = pool.scale[i];
+            float tailLength = tail.width * size * 3 / 2f;
+            // The tail reaches up to twice its offset behind the body
+            if (!visible(pool.x[i], pool.y[i], tailLength * 2f + asteroidSprite.width * size, camX, camY, halfW, halfH)) continue;
+
+            Draw.rect(tail, pool.x[i] + pool.backX[i] * tailLength, pool.y[i] + pool.backY[i] * tailLength,
+                    tail.width * size * 3f,
+                    tail.height * size * 2f,
+                    pool.angle[i] + 180);
+
+            Draw.rect(asteroidSprite, pool.x[i], pool.y[i],
+                    asteroidSprite.width * size * 2,
+                    asteroidSprite.height * size * 2,
+                    bodyRotation);
         }
+
+        // Fragments, drawn above their ground position by their height
+        for (int i = 0; i < frags.size; i++) {
+            float size = frags.scale[i];
+            float drawY = frags.y[i] + frags.z[i];
+            if (!visible(frags.x[i], drawY, asteroidSprite.width * size, camX, camY, halfW, halfH)) continue;
+
+            Draw.rect(asteroidSprite, frags.x[i], drawY,
+                    asteroidSprite.width * size * 2,
+                    asteroidSprite.height * size * 2,
+                    frags.rotation[i]);
+        }
+
+        Draw.reset();
+    }
+
+    private static boolean visible(float x, float y, float margin, float camX, float camY, float halfW, float halfH) {
+        return Math.abs(x - camX) <= halfW + margin && Math.abs(y - camY) <= halfH + margin;
     }
 
     /**
      * Applies asteroid effects once it impacts, such as visual effects, or having blocks destroyed
-     * @param asteroid - asteroid that will impact
+     * @param pool - pool of the asteroid
+     * @param index - index of the asteroid that will impact
      */
-    private void handleAsteroidImpact(Asteroid asteroid) {
-        Log.info("[ASTEROID] ========================================");
-        Log.info("[ASTEROID] *** IMPACT EVENT ***");
-        Log.info("[ASTEROID] Position: (" + asteroid.targetX + ", " + asteroid.targetY + ")");
-
-        int impactTileX = World.toTile(asteroid.targetX);
-        int impactTileY = World.toTile(asteroid.targetY);
+    private void handleAsteroidImpact(AsteroidPool pool, int index) {
+        long start = Time.nanos();
+        float targetX = pool.targetX[index], targetY = pool.targetY[index];
+        int impactRadius = pool.radius[index];
+        int impactTileX = World.toTile(targetX);
+        int impactTileY = World.toTile(targetY);
 
         // Create impact effect
-        Effect impactEffect = new Effect(120f, e -> {
-            color(Color.white, Color.orange, e.fin());
-            stroke(e.fout() * 6f + 1f);
-            Lines.circle(e.x, e.y, e.fin() * asteroid.impactRadius * Vars.tilesize * 2);
-
-            color(Color.yellow, Color.red, e.fin());
-            Lines.circle(e.x, e.y, e.fin() * asteroid.impactRadius * Vars.tilesize);
-        });
-
-        impactEffect.at(asteroid.targetX, asteroid.targetY);
+        DisasterEffects.impact(targetX, targetY, impactRadius);
 
         // Screen shake
-        float shakeIntensity = Mathf.map(asteroid.impactRadius, 4, 12, 15f, 30f);
+        float shakeIntensity = Mathf.map(impactRadius, 4, 12, 15f, 30f);
         if (Vars.renderer != null)
             Vars.renderer.shake(shakeIntensity, 80f);
 
         // Play sound
-        Sounds.explosion.at(asteroid.targetX, asteroid.targetY, 1.5f);
-
-        // Damage player if in range
-        if (Vars.player != null && Vars.player.unit() != null) {
-            float playerDist = Mathf.dst(Vars.player.x, Vars.player.y,
-                    asteroid.targetX, asteroid.targetY);
-            float damageRadius = asteroid.impactRadius * Vars.tilesize * 1.2f;
-
-            if (playerDist < damageRadius) {
-                float damageMult = 1f - (playerDist / damageRadius);
-                float damage = 200f * damageMult;
-                Vars.player.unit().damage(damage);
-                Log.info("[ASTEROID] *** PLAYER HIT FOR " + damage + " DAMAGE! ***");
-            }
+        Sounds.explosion.at(targetX, targetY, 1.5f);
+
+        // Clients only show the impact, the server sends its damage and crater
+        if (Vars.net.client()) return;
+
+        // Rocks without a planned crater go in the frame's shared edit, and in one record per frame
+        if (pool.crater[index] == null) {
+            areaDamage.units(targetX, targetY, impactRadius * Vars.tilesize * 1.2f, impactUnitDamage);
+            rocksDestroyed += areaDamage.buildings(impactTileX, impactTileY, impactRadius, impactBlockDamage * impactRadius, rockEdit);
+            rockCraters.place(impactTileX, impactTileY, impactRadius, pool.craterSeed[index], planetsGen, currentOres());
+            rocksLanded++;
+            lastRockPos = Point2.pack(impactTileX, impactTileY);
+            rockNanos += Time.timeSinceNanos(start);
+            PhaseTimes.record(PhaseTimes.Phase.asteroidImpact, Time.timeSinceNanos(start));
+            return;
         }
 
-        // Destroy blocks in radius
-        destroyBlocksInRadius(impactTileX, impactTileY, asteroid.impactRadius);
+        // Damage every unit of every team in range, and the blocks of the crater
+        if (areaDamage.units(targetX, targetY, impactRadius * Vars.tilesize * 1.2f, impactUnitDamage) > 0) {
+            Telemetry.record(Telemetry.Kind.unitsHit, impactTileX, impactTileY, impactRadius, areaDamage.unitsHit, (int) areaDamage.unitDamage, 0L);
+        }
+        areaDamage.buildings(impactTileX, impactTileY, impactRadius, impactBlockDamage * impactRadius, impactEdit);
+        Telemetry.record(Telemetry.Kind.asteroidDestroyed, impactTileX, impactTileY, impactRadius, areaDamage.destroyed, areaDamage.damaged, 0L);
 
-        // Place crater
-        placeCrater(impactTileX, impactTileY, asteroid.impactRadius);
+        PhaseTimes.record(PhaseTimes.Phase.asteroidImpact, Time.timeSinceNanos(start));
 
-        Log.info("[ASTEROID] ========================================");
+        // Place the crater, planned during the warning phase, then remove the destroyed blocks:
+        // removing them first would make the plan see its area changed and compute it again
+        pool.crater[index].apply();
+        if (impactEdit.size() > 0) impactEdit.apply();
+
+        Telemetry.record(Telemetry.Kind.asteroidImpact, impactTileX, impactTileY, impactRadius, 0, 0, Time.timeSinceNanos(start));
     }
 
     /**
-     * Destroys blocks around a tile based on a defined radius
-     * @param centerX - tile x position
-     * @param centerY - tile y position
-     * @param radius - radius to check around the tile
+     * @return true if asteroids are falling
      */
-    private void destroyBlocksInRadius(int centerX, int centerY, int radius) {
-        Log.info("[ASTEROID] destroyBlocksInRadius(" + centerX + ", " + centerY + ", " + radius + ")");
-        PlanetGenerator pGen = planetsGen[Mathf.random(0,2)];
-        int destroyed = 0;
-        Seq<Tile> checkedMultiblocks = new Seq<>();
-
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                float dist = Mathf.dst(0, 0, dx, dy);
-                if (dist > radius) continue;
-
-                Tile tile = Vars.world.tile(centerX + dx, centerY + dy);
-
-                if (tile.build != null && tile.build.block.size > 1) {
-                    if (!checkedMultiblocks.contains(tile.build.tile)) {
-                        checkedMultiblocks.add(tile.build.tile);
-                        Seq<Tile> linkedTiles = new Seq<>();
-                        tile.build.tile.getLinkedTiles(linkedTiles);
-                        for (Tile t : linkedTiles) {
-                            if (!(t.block() instanceof CoreBlock)) { genTile(t, pGen); destroyed++; }
-                        }
-                    }
-                } else { if (!(tile.block() instanceof CoreBlock)) { genTile(tile, pGen); destroyed++; } }
-
-            }
-        }
-
-        Log.info("[ASTEROID] Destroyed " + destroyed + " blocks");
+    public boolean isActive() {
+        return asteroids.size > 0;
     }
 
     /**
-     * Places a crater on the impact zone of the asteroid
-     * May also spawn ores from other planets
-     * @param centerX - tile x position
-     * @param centerY - tile y position
-     * @param radius - radius to check around the tile
+     * Writes the falling asteroids to a save
+     * @param out - stream to write to
      */
-    private void placeCrater(int centerX, int centerY, int radius) {
-        PlanetGenerator pGen = planetsGen[Mathf.random(0, 2)];
-        int placedCharred = 0;
-        int placedAlien = 0;
-
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                float dist = Mathf.dst(0, 0, dx, dy);
-                if (dist > radius) continue; // Outside impact area
-
-                Tile tile = Vars.world.tile(centerX + dx, centerY + dy);
-                if (tile == null) continue;
-
-                // Inner area (0-80% radius): Mix of charred and alien floor
-                if (dist <= radius * 0.8f) {
-                    if (Mathf.random() < 0.8f) {
-                        // 80% chance for charred floor
-                        Floor burnedFloor = (Floor) Blocks.charr;
-                        if (burnedFloor != null) {
-                            tile.setFloor(burnedFloor);
-                            placedCharred++;
-                        }
-                    } else {
-                        // 20% chance for alien floor in inner area
-                        genTile(tile, pGen);
-                        placedAlien++;
-                    }
-                }
-                // Border area (80-100% radius): ALL alien floor
-                else {
-                    genTile(tile, pGen);
-                    placedAlien++;
-                }
-            }
-        }
-
-        Log.info("[ASTEROID] Placed " + placedCharred + " charred floor tiles");
-        Log.info("[ASTEROID] Placed " + placedAlien + " alien floor tiles");
-
-        // 25% chance to spawn ores
-        if (Mathf.random() < 0.25f) {
-            Log.info("[ASTEROID] Attempting to spawn ores...");
-
-            // 75% chance for 1-3 ores, 25% chance for 4-7 ores
-            int oreCount;
-            if (Mathf.random() < 0.75f) {
-                oreCount = Mathf.random(1, 3);
-            } else {
-                oreCount = Mathf.random(4, 7);
-            }
-
-            Log.info("[ASTEROID] Will attempt to spawn " + oreCount + " ores");
-
-            Block[] ores;
-            if (Vars.ui != null && Vars.ui.planet.state.planet == Planets.erekir) {
-                ores = oresErekir.clone();
-            } else {
-                ores = oresSerpulo.clone();
-            }
-
-            if (ores.length == 0) {
-                Log.warn("[ASTEROID] No ores available for this planet!");
-                return;
-            }
-
-            int oresSpawned = 0;
-
-            while (oresSpawned < oreCount) {
-
-                // Random position within the impact radius
-                int oreX = centerX + Mathf.range(radius);
-                int oreY = centerY + Mathf.range(radius);
-
-                Tile oreTile = Vars.world.tile(oreX, oreY);
-
-                // Check if tile is valid for ore placement
-                if (oreTile != null &&
-                        oreTile.floor() != null &&
-                        oreTile.floor().hasSurface() &&
-                        oreTile.overlay() == Blocks.air &&
-                        !(oreTile.block() instanceof CoreBlock)) {
-
-                    Block randomOre = ores[Mathf.random(ores.length - 1)];
-
-                    if (randomOre != null) {
-                        oreTile.setOverlay(randomOre);
-                        oresSpawned++;
-                        Log.info("[ASTEROID] Spawned ore: " + randomOre.name + " at (" + oreX + ", " + oreY + ")");
-                    }
-                }
-            }
+    public void write(DataOutput out) throws IOException {
+        asteroids.write(out);
+    }
 
-            Log.info("[ASTEROID] Successfully spawned " + oresSpawned + " out of " + oreCount);
-        } else {
-            Log.info("[ASTEROID] No ores spawned this impact (75% chance to skip)");
+    /**
+     * Restores the asteroids of a save and plans their craters again
+     * @param in - stream to read from
+     * @return number of asteroids restored
+     */
+    public int read(DataInput in) throws IOException {
+        int count = asteroids.read(in);
+        Block[] ores = currentOres();
+
+        // Craters are planned again from their saved seed, so they come out as they would have without the reload
+        for (int i = asteroids.size - count; i < asteroids.size; i++) {
+            // Small rocks get their crater at impact, breaking ones never land
+            if (asteroids.radius[i] <= instantCraterRadius || asteroids.breakup[i] <= 1f) continue;
+            asteroids.crater[i] = CraterPlan.start(World.toTile(asteroids.targetX[i]), World.toTile(asteroids.targetY[i]),
+                    asteroids.radius[i], asteroids.craterSeed[i], planetsGen, ores);
         }
+        return count;
     }
 
     /**
-     * Brings a planet invasion to a tile (floor from another planet in the game)
-     * @param t - tile to change
-     * @param gen - generator from a planet in mindustry
+     * @return ores that can spawn on the current planet
      */
-    private static void genTile(Tile t, PlanetGenerator gen){
-        if (t.data > 0) return;
-        if (t.block() instanceof CoreBlock) return;
-
-        TileGen tg = new TileGen();
-        Vec3 pos = new Vec3();
-        float fx = t.x / (float) Vars.world.width();
-        float fy = t.y / (float) Vars.world.height();
-
-        // Map to unit sphere
-        pos.set(fx * 2 - 1, 0, fy * 2 - 1).nor();
-
-        if (gen instanceof ErekirPlanetGenerator e) e.genTile(pos, tg);
-        else if (gen instanceof SerpuloPlanetGenerator s) s.genTile(pos, tg);
-        else if (gen instanceof TantrosPlanetGenerator a) a.genTile(pos, tg);
-
-        BlockLogic.destroyTile(t);
-        t.setFloor(tg.floor.asFloor());
-
-        // 15% chance to preserve existing ore in that tile
-        if (t.overlay() == Blocks.air || Math.random() > 0.15) {
-            t.setOverlay(Blocks.air);
-        }
+    private Block[] currentOres() {
+        // Rules instead of the planet dialog, dedicated servers have no UI
+        if (Vars.state.rules.planet == Planets.erekir) return oresErekir;
+        return oresSerpulo;
     }
 }
 
@@ -0,0 +1,259 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Mathf;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Active asteroids stored as parallel primitive arrays (struct of arrays), one index per asteroid.
+ * Removing an asteroid moves the last one into its slot, so the live asteroids are always 0..size-1
+ * and updating them is one pass over the arrays without allocating, even for meteor showers.
+ */
+public class AsteroidPool {
+    // Distance from the target (world units) at which an asteroid counts as impacted
+    private static final float impactDistance = 16f;
+
+    /** Number of live asteroids */
+    public int size;
+
+    // World positions, start and target are fixed at spawn
+    float[] startX, startY, targetX, targetY, x, y;
+    // Flight progress from 0 to 1, and progress gained per tick
+    float[] progress, step;
+    // Progress at which the asteroid impacts (99% or impactDistance before the target)
+    float[] impactProgress;
+    // Progress at which the asteroid breaks up into fragments, above 1 if it never does
+    float[] breakup;
+    // Ticks spent in the warning phase, and ticks before the flight starts
+    float[] warning, warningTime;
+    // Sprite scale and flight direction in degrees
+    float[] scale, angle;
+    // Unit vector pointing back along the flight (where the tail goes), computed once at spawn
+    float[] backX, backY;
+    int[] radius;
+    // Crater planned ahead, null for small rocks whose crater is computed at impact from craterSeed
+    CraterPlan[] crater;
+    long[] craterSeed;
+
+    /** Called for every asteroid reaching its target, before it is removed */
+    public interface ImpactListener {
+        /**
+         * @param pool - pool of the asteroid
+         * @param index - index of the asteroid, only valid during the call
+         */
+        void impact(AsteroidPool pool, int index);
+    }
+
+    /**
+     * @param capacity - initial number of asteroids, grows when needed
+     */
+    public AsteroidPool(int capacity) {
+        resize(Math.max(capacity, 1));
+    }
+
+    /**
+     * Adds an asteroid flying in a straight line towards its target
+     * @param targetX - world x position of the target
+     * @param targetY - world y position of the target
+     * @param angle - flight direction in degrees
+     * @param distance - distance from the start to the target
+     * @param speed - world units per tick
+     * @param warningTime - ticks spent on the ground warning before the flight starts
+     * @param radius - impact radius in tiles
+     * @param scale - sprite scale
+     * @param crater - crater planned for the impact, may be null
+     * @return index of the asteroid, valid until the next removal
+     */
+    public int add(float targetX, float targetY, float angle, float distance, float speed, float warningTime,
+                   int radius, float scale, CraterPlan crater) {
+        if (size == x.length) resize(size * 2);
+        int i = size++;
+
+        this.targetX[i] = targetX;
+        this.targetY[i] = targetY;
+        backX[i] = Mathf.cosDeg(angle + 180);
+        backY[i] = Mathf.sinDeg(angle + 180);
+        startX[i] = targetX + backX[i] * distance;
+        startY[i] = targetY + backY[i] * distance;
+        x[i] = startX[i];
+        y[i] = startY[i];
+        progress[i] = 0f;
+        step[i] = speed / distance;
+        impactProgress[i] = Math.min(0.99f, 1f - impactDistance / distance);
+        breakup[i] = 2f;
+        warning[i] = 0f;
+        this.warningTime[i] = warningTime;
+        this.scale[i] = scale;
+        this.angle[i] = angle;
+        this.radius[i] = radius;
+        this.crater[i] = crater;
+        craterSeed[i] = 0L;
+        return i;
+    }
+
+    /**
+     * Advances every asteroid, impacted ones are reported and removed
+     * @param delta - ticks since the last update
+     * @param listener - called for every impact
+     */
+    public void update(float delta, ImpactListener listener) {
+        update(delta, listener, null);
+    }
+
+    /**
+     * Advances every asteroid, impacted and broken up ones are reported and removed
+     * @param delta - ticks since the last update
+     * @param listener - called for every impact
+     * @param breakupListener - called for every asteroid reaching its breakup progress, may be null
+     */
+    public void update(float delta, ImpactListener listener, ImpactListener breakupListener) {
+        for (int i = 0; i < size; i++) {
+            // Warning phase, the time left over when it ends is already flight time
+            float w = warning[i] + delta;
+            warning[i] = w;
+            float flight = Math.max(w - warningTime[i], 0f);
+            if (flight == 0f) continue;
+
+            float p = Math.min(progress[i] + step[i] * Math.min(flight, delta), 1f);
+            progress[i] = p;
+            x[i] = startX[i] + (targetX[i] - startX[i]) * p;
+            y[i] = startY[i] + (targetY[i] - startY[i]) * p;
+
+            if (p >= breakup[i] && breakupListener != null) {
+                breakupListener.impact(this, i);
+                remove(i);
+                i--;
+            } else if (p >= impactProgress[i]) {
+                listener.impact(this, i);
+                remove(i);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * @param index - index of the asteroid
+     * @return true while the asteroid is still warning on the ground
+     */
+    public boolean isWarning(int index) {
+        return warning[index] < warningTime[index];
+    }
+
+    /**
+     * Removes an asteroid by moving the last one into its slot
+     * @param index - index of the asteroid
+     */
+    public void remove(int index) {
+        int last = --size;
+        if (index != last) {
+            startX[index] = startX[last];
+            startY[index] = startY[last];
+            targetX[index] = targetX[last];
+            targetY[index] = targetY[last];
+            x[index] = x[last];
+            y[index] = y[last];
+            progress[index] = progress[last];
+            step[index] = step[last];
+            impactProgress[index] = impactProgress[last];
+            breakup[index] = breakup[last];
+            warning[index] = warning[last];
+            warningTime[index] = warningTime[last];
+            scale[index] = scale[last];
+            angle[index] = angle[last];
+            backX[index] = backX[last];
+            backY[index] = backY[last];
+            radius[index] = radius[last];
+            crater[index] = crater[last];
+            craterSeed[index] = craterSeed[last];
+        }
+        crater[last] = null;
+    }
+
+    /**
+     * Writes every asteroid, field by field in a fixed layout:
+     * the count, then per asteroid targetX, targetY, angle, distance, speed, warning, warningTime, scale (floats)
+     * breakup (float), radius (byte) and craterSeed (long). The position is not written, it follows from the
+     * warning time spent. Craters are not written either, they are planned again on load from their seed.
+     * @param out - stream to write to
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            float distance = Mathf.dst(startX[i], startY[i], targetX[i], targetY[i]);
+            out.writeFloat(targetX[i]);
+            out.writeFloat(targetY[i]);
+            out.writeFloat(angle[i]);
+            out.writeFloat(distance);
+            out.writeFloat(step[i] * distance);
+            out.writeFloat(warning[i]);
+            out.writeFloat(warningTime[i]);
+            out.writeFloat(scale[i]);
+            out.writeFloat(breakup[i]);
+            out.writeByte(radius[i]);
+            out.writeLong(craterSeed[i]);
+        }
+    }
+
+    /**
+     * Adds the asteroids written by write, without craters
+     * @param in - stream to read from
+     * @return number of asteroids added, they are the last ones of the pool
+     */
+    public int read(DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int n = 0; n < count; n++) {
+            float targetX = in.readFloat(), targetY = in.readFloat(), angle = in.readFloat();
+            float distance = in.readFloat(), speed = in.readFloat();
+            float warning = in.readFloat(), warningTime = in.readFloat(), scale = in.readFloat();
+            float breakup = in.readFloat();
+            int radius = in.readUnsignedByte();
+            long craterSeed = in.readLong();
+
+            int i = add(targetX, targetY, angle, distance, speed, warningTime, radius, scale, null);
+            // Same progress as update reaches after that much warning time
+            float p = Math.min(step[i] * Math.max(warning - warningTime, 0f), 1f);
+            this.warning[i] = warning;
+            this.breakup[i] = breakup;
+            this.craterSeed[i] = craterSeed;
+            progress[i] = p;
+            x[i] = startX[i] + (targetX - startX[i]) * p;
+            y[i] = startY[i] + (targetY - startY[i]) * p;
+        }
+        return count;
+    }
+
+    /**
+     * Removes every asteroid
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) crater[i] = null;
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        startX = PoolArrays.grow(startX, size, capacity);
+        startY = PoolArrays.grow(startY, size, capacity);
+        targetX = PoolArrays.grow(targetX, size, capacity);
+        targetY = PoolArrays.grow(targetY, size, capacity);
+        x = PoolArrays.grow(x, size, capacity);
+        y = PoolArrays.grow(y, size, capacity);
+        progress = PoolArrays.grow(progress, size, capacity);
+        step = PoolArrays.grow(step, size, capacity);
+        impactProgress = PoolArrays.grow(impactProgress, size, capacity);
+        breakup = PoolArrays.grow(breakup, size, capacity);
+        warning = PoolArrays.grow(warning, size, capacity);
+        warningTime = PoolArrays.grow(warningTime, size, capacity);
+        scale = PoolArrays.grow(scale, size, capacity);
+        angle = PoolArrays.grow(angle, size, capacity);
+        backX = PoolArrays.grow(backX, size, capacity);
+        backY = PoolArrays.grow(backY, size, capacity);
+        radius = PoolArrays.grow(radius, size, capacity);
+        craterSeed = PoolArrays.grow(craterSeed, size, capacity);
+
+        CraterPlan[] newCrater = new CraterPlan[capacity];
+        if (crater != null) System.arraycopy(crater, 0, newCrater, 0, size);
+        crater = newCrater;
+    }
+}
@@ -1,15 +1,32 @@
 package EarthquakeAsteroidMod;
 
 import arc.math.Mathf;
+import arc.math.Rand;
+import arc.math.geom.Point2;
 import arc.util.Log;
+import arc.util.Time;
 import mindustry.Vars;
 import mindustry.content.Blocks;
 import mindustry.core.World;
+import mindustry.entities.Damage;
+import mindustry.gen.Building;
+import mindustry.gen.Groups;
+import mindustry.gen.Player;
 import mindustry.world.Tile;
 import mindustry.world.blocks.storage.CoreBlock;
 
 
 public class BlockLogic {
+    // Candidates tested per search, a grid lookup is cheap enough to try many more than a tile scan
+    static final int searchAttempts = 2000;
+    private static final int fallbackAttempts = 150;
+    // Health of breakable blocks without a building (boulders), per tile of block size
+    private static final float rubbleHealth = 40f;
+
+    /** How targets are picked: random samples or every tile in range */
+    public enum SearchMode { sampled, exhaustive }
+
+    public static SearchMode searchMode = SearchMode.sampled;
 
     /**
      * Checks if a tile is valid
@@ -17,7 +34,7 @@ public class BlockLogic {
      * @param radius - radius around the tile
      * @return true if tile is valid false otherwise
      */
-    private static boolean isTileValid(Tile tile, int radius) {
+    static boolean isTileValid(Tile tile, int radius) {
         if (tile == null) return false;
 
         // ensure the tile AND its impact radius stay within map bounds
@@ -39,50 +56,56 @@ public class BlockLogic {
      * @return - number of breakables builds around the tile
      */
     private static int countBreakableAround(int x, int y, int radius){
-        int breakableCount = 0;
-
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                if (Mathf.dst(0, 0, dx, dy) > radius) continue;
-
-                Tile checkTile = Vars.world.tile(x + dx, y + dy);
-                if (checkTile == null) continue;
-
-                if (isBreakable(checkTile) && checkTile.build != null) breakableCount++;
-            }
-        }
-        return breakableCount;
+        return DiskStencil.count(x, y, radius, t -> isBreakable(t) && t.build != null);
     }
 
     /**
      * Finds the best target around the player, if not found asteroid/earthquake doesn't spawn/happen
      * @param radius - radius to check around tile
      * @param maxRange - max range to check around player
+     * @param rand - random stream of the event
      * @return the tile with the most breakable builds, if no tile with breakable builds around the player, returns null
      */
     // Common method to find valid target location near player
     //Asteroid and maybe earthquakes WILL NOT SPAWN if no blocks are placed
-    public static Tile findValidTargetNearPlayer(int radius, int maxRange) {
-        if (Vars.player == null || Vars.player.unit() == null) {
+    public static Tile findValidTargetNearPlayer(int radius, int maxRange, Rand rand) {
+        Player player = randomTargetPlayer(rand);
+        if (player == null) {
             Log.warn("[SHARED] Player or player unit is null!");
             return null;
         }
 
-        float playerX = Vars.player.unit().x;
-        float playerY = Vars.player.unit().y;
+        float playerX = player.unit().x;
+        float playerY = player.unit().y;
         int playerTileX = World.toTile(playerX);
         int playerTileY = World.toTile(playerY);
         Tile tile = null;
         Tile testTile;
         int mostBreakableBlocks = 0;
 
-        Log.info("[SHARED] Player at tile (" + playerTileX + ", " + playerTileY + ")");
-        Log.info("[SHARED] Searching for target within " + maxRange + " tiles of player, radius=" + radius);
+        long start = Time.nanos();
+        DensityGrid grid = DensityGrid.current();
+        if (grid != null) {
+            TargetSearch.Snapshot snapshot = TargetSearch.Snapshot.capture(grid, playerTileX, playerTileY, maxRange + radius);
+            int pos = searchMode == SearchMode.exhaustive ?
+                    TargetSearch.exhaustive(snapshot, playerTileX, playerTileY, radius, maxRange) :
+                    TargetSearch.sample(snapshot, playerTileX, playerTileY, radius, maxRange, searchAttempts, rand);
+
+            if (pos == -1) {
+                Telemetry.record(Telemetry.Kind.targetMissing, playerTileX, playerTileY, radius, 0, maxRange, Time.timeSinceNanos(start));
+                return null;
+            }
 
-        for (int attempt = 0; attempt < 150; attempt++) {
+            int x = Point2.x(pos), y = Point2.y(pos);
+            Telemetry.record(Telemetry.Kind.targetFound, x, y, radius, snapshot.countDisk(x, y, radius), maxRange, Time.timeSinceNanos(start));
+            return Vars.world.tile(x, y);
+        }
 
-            int testX = playerTileX + Mathf.range(maxRange);
-            int testY = playerTileY + Mathf.range(maxRange);
+        // Without a grid (no world load seen yet) fall back to scanning the tiles
+        for (int attempt = 0; attempt < fallbackAttempts; attempt++) {
+
+            int testX = playerTileX + rand.range(maxRange);
+            int testY = playerTileY + rand.range(maxRange);
 
             // Clamp with buffer to stay within map bounds
             int buffer = radius + 5;
@@ -102,14 +125,77 @@ public class BlockLogic {
             if (breakableCount > mostBreakableBlocks) {
                 mostBreakableBlocks = breakableCount;
                 tile = testTile;
-                Log.info("found tile");
             }
         }
 
-        Log.warn("[SHARED] Could not find valid location after 150 attempts!");
+        if (tile == null) Telemetry.record(Telemetry.Kind.targetMissing, playerTileX, playerTileY, radius, 0, maxRange, Time.timeSinceNanos(start));
+        else Telemetry.record(Telemetry.Kind.targetFound, tile.x, tile.y, radius, mostBreakableBlocks, maxRange, Time.timeSinceNanos(start));
         return tile;
     }
 
+    /**
+     * @return the first connected player with a living unit (the local player in single player), null if none
+     */
+    public static Player targetPlayer() {
+        for (int i = 0; i < Groups.player.size(); i++) {
+            Player player = Groups.player.index(i);
+            if (!player.dead()) return player;
+        }
+        return null;
+    }
+
+    /**
+     * Picks the player an event is aimed at, on servers every connected player is equally likely
+     * @param rand - random stream of the event
+     * @return a random connected player with a living unit, null if none
+     */
+    public static Player randomTargetPlayer(Rand rand) {
+        int alive = 0;
+        for (int i = 0; i < Groups.player.size(); i++) {
+            if (!Groups.player.index(i).dead()) alive++;
+        }
+        if (alive == 0) return null;
+
+        int pick = rand.random(alive - 1);
+        for (int i = 0; i < Groups.player.size(); i++) {
+            Player player = Groups.player.index(i);
+            if (!player.dead() && pick-- == 0) return player;
+        }
+        return null;
+    }
+
+    /**
+     * @param x - tile x position
+     * @param y - tile y position
+     * @param range - max distance in tiles on each axis
+     * @return true if a player with a living unit is within range of the tile
+     */
+    public static boolean isNearPlayer(int x, int y, int range) {
+        for (int i = 0; i < Groups.player.size(); i++) {
+            Player player = Groups.player.index(i);
+            if (player.dead()) continue;
+            if (Math.abs(World.toTile(player.unit().x) - x) <= range && Math.abs(World.toTile(player.unit().y) - y) <= range) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Decides if some damage destroys the block of a tile, with the same math as Building.damage:
+     * armor first, then the health multipliers of the building and of its team's rules.
+     * Blocks without a building (boulders) have rubbleHealth per tile of block size.
+     * @param tile - tile of the block
+     * @param damage - raw damage
+     * @return true if the block would die, false if it only takes the damage
+     */
+    public static boolean wouldDestroy(Tile tile, float damage) {
+        Building build = tile.build;
+        if (build == null) return damage >= rubbleHealth * tile.block().size;
+
+        float multiplier = Vars.state.rules.blockHealth(build.team);
+        if (Mathf.zero(multiplier)) return true;
+        return Damage.applyArmor(damage, build.block.armor) / multiplier / build.healthMultiplier >= build.health;
+    }
+
     /**
      * Checks if the block on the tile is breakable
      * @param tile - tile to check
@@ -126,12 +212,11 @@ public class BlockLogic {
     /**
      * Destroys build/block on tile
      * @param t - tile to destroy build/block on
+     * @param edit - edit of the current event, the block is removed when it is applied
      * @return true if destroyed
      */
-    public static boolean destroyTile(Tile t) {
-        if (t.build != null)  t.build.kill();
-
-        t.setBlock(Blocks.air);
+    public static boolean destroyTile(Tile t, TerrainEdit edit) {
+        edit.removeBlock(t);
 
         return true;
     }
@@ -0,0 +1,370 @@
+package EarthquakeAsteroidMod;
+
+import arc.Events;
+import arc.math.Rand;
+import arc.math.geom.Point2;
+import arc.struct.IntSeq;
+import arc.struct.Seq;
+import arc.util.Log;
+import arc.util.Time;
+import mindustry.Vars;
+import mindustry.content.Blocks;
+import mindustry.game.EventType;
+import mindustry.maps.generators.PlanetGenerator;
+import mindustry.world.Block;
+import mindustry.world.Tile;
+import mindustry.world.blocks.storage.CoreBlock;
+
+import java.util.concurrent.Future;
+
+/**
+ * Crater of an asteroid, computed on the planner thread while the asteroid is in its warning phase.
+ * The tiles around the impact are copied when the asteroid spawns, together with the floors the planet
+ * generator gives them (the generators share scratch vectors, so they only run on the main thread).
+ * The worker turns that copy into a TerrainEdit (alien and charred floors, ores) with array lookups only,
+ * and the impact applies it. Blocks in the area are left to AreaDamage, the crater only changes the ground under them.
+ * If a tile in the area changes before the impact the plan is recomputed on the main thread,
+ * from a fresh copy and the same seed. Small craters (shower rocks) skip all that: one reused plan
+ * computes them at impact into an edit shared by the frame.
+ */
+public class CraterPlan {
+    // Plans waiting for their impact, watched for tile changes
+    private static final Seq<CraterPlan> pending = new Seq<>();
+
+    static final byte flagCore = 1, flagData = 2, flagOverlayAir = 4, flagSurface = 8, flagAlienSurface = 16;
+    // Content ids read by the worker, set in init
+    static short charrId, airId;
+
+    private int centerX, centerY, radius;
+    private long seed;
+    private PlanetGenerator[] generators;
+    // Index of the generator of the alien floors, first draw of the seed
+    private int planet;
+    private int[] ores;
+    private final Rand rand = new Rand();
+    private Future<?> task;
+    private volatile boolean dirty;
+
+    // Copied area: the disk
+    private int x1, y1, width, height;
+    private byte[] flags;
+    // Floor the generator places on each tile of the disk
+    private short[] alienFloors;
+
+    // Tiles of the crater that can hold an ore, and the picked ones
+    private final OreSampler oreSampler = new OreSampler();
+    private final IntSeq oreTiles = new IntSeq(), oreTypes = new IntSeq();
+
+    // Result, only read once the plan is done. Shared edits collect several craters and are never cleared here
+    final TerrainEdit edit;
+    private final boolean shared;
+    private int charred, alien, oresSpawned, oresWanted;
+    private long nanos;
+
+    private CraterPlan(int centerX, int centerY, int radius, long seed, PlanetGenerator[] generators, int[] ores) {
+        edit = new TerrainEdit();
+        shared = false;
+        set(centerX, centerY, radius, seed, generators, ores);
+    }
+
+    private CraterPlan(TerrainEdit edit) {
+        this.edit = edit;
+        shared = true;
+    }
+
+    private void set(int centerX, int centerY, int radius, long seed, PlanetGenerator[] generators, int[] ores) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radius = radius;
+        this.seed = seed;
+        this.generators = generators;
+        this.ores = ores;
+        rand.setSeed(seed);
+        planet = rand.random(0, 2);
+    }
+
+    /**
+     * Plan reused for the craters computed at impact (see place)
+     * @param edit - edit every crater is added to, applied by the caller
+     * @return the plan
+     */
+    public static CraterPlan instant(TerrainEdit edit) {
+        return new CraterPlan(edit);
+    }
+
+    /**
+     * Plan of an area copied beforehand, without the world (benchmarks)
+     * @param centerX - tile x position of the impact
+     * @param centerY - tile y position of the impact
+     * @param radius - impact radius
+     * @param seed - seed of every random choice of the crater
+     * @param ores - content ids of the ores that may spawn
+     * @param area - x1, y1, width and height of the copied area
+     * @param flags - flags of every tile of the area
+     * @param alienFloors - generator floor of every tile of the area
+     * @return the plan, not computed yet
+     */
+    static CraterPlan of(int centerX, int centerY, int radius, long seed, int[] ores, int[] area, byte[] flags, short[] alienFloors) {
+        CraterPlan plan = new CraterPlan(centerX, centerY, radius, seed, null, ores);
+        plan.x1 = area[0];
+        plan.y1 = area[1];
+        plan.width = area[2];
+        plan.height = area[3];
+        plan.flags = flags;
+        plan.alienFloors = alienFloors;
+        return plan;
+    }
+
+    /**
+     * Registers the listeners that mark plans whose area changed
+     */
+    public static void init() {
+        charrId = Blocks.charr.id;
+        airId = Blocks.air.id;
+
+        Events.on(EventType.WorldLoadEvent.class, e -> {
+            for (CraterPlan plan : pending) plan.dirty = true;
+            pending.clear();
+        });
+
+        Events.on(EventType.TileChangeEvent.class, e -> {
+            for (int i = 0; i < pending.size; i++) pending.get(i).tileChanged(e.tile);
+        });
+    }
+
+    /**
+     * Copies the area around the impact and starts computing the crater on the planner thread
+     * @param centerX - tile x position of the impact
+     * @param centerY - tile y position of the impact
+     * @param radius - impact radius
+     * @param seed - seed of every random choice of the crater
+     * @param generators - planet generators the alien floors are taken from
+     * @param ores - ores that may spawn in the crater
+     * @return the plan
+     */
+    public static CraterPlan start(int centerX, int centerY, int radius, long seed, PlanetGenerator[] generators, Block[] ores) {
+        int[] oreIds = new int[ores.length];
+        for (int i = 0; i < ores.length; i++) oreIds[i] = ores[i].id;
+        CraterPlan plan = new CraterPlan(centerX, centerY, radius, seed, generators, oreIds);
+
+        plan.capture();
+        pending.add(plan);
+        plan.task = TargetPlanner.executor().submit(() -> {
+            try {
+                plan.compute();
+            } catch (Throwable t) {
+                Log.err("[ASTEROID] Crater plan failed: " + t);
+                plan.dirty = true;
+            }
+        });
+        return plan;
+    }
+
+    /**
+     * Computes a crater at once on the main thread and adds it to the shared edit of an instant plan.
+     * For small craters (shower rocks): they take microseconds, less than copying their area ahead and
+     * watching it for changes, and packed rocks would keep marking each other's plans as changed.
+     * The caller applies the edit once for every crater of the frame, and records it (one record per rock
+     * would flood the telemetry during a shower).
+     * @param centerX - tile x position of the impact
+     * @param centerY - tile y position of the impact
+     * @param radius - impact radius
+     * @param seed - seed of every random choice of the crater
+     * @param generators - planet generators the alien floors are taken from
+     * @param ores - ores that may spawn in the crater
+     */
+    public void place(int centerX, int centerY, int radius, long seed, PlanetGenerator[] generators, Block[] ores) {
+        int[] oreIds = this.ores != null && this.ores.length == ores.length ? this.ores : new int[ores.length];
+        for (int i = 0; i < ores.length; i++) oreIds[i] = ores[i].id;
+        set(centerX, centerY, radius, seed, generators, oreIds);
+
+        capture();
+        compute();
+    }
+
+    /**
+     * Applies the crater, recomputing it first if it isn't ready or its area changed
+     */
+    public void apply() {
+        long start = Time.nanos();
+        pending.remove(this, true);
+
+        // A plan that never started is dropped, one that is running is waited for (it only takes a few ms)
+        if (!task.cancel(false)) {
+            try {
+                task.get();
+            } catch (Exception e) {
+                Log.err("[ASTEROID] Crater plan failed: " + e);
+                dirty = true;
+            }
+        } else {
+            dirty = true;
+        }
+
+        if (dirty) {
+            capture();
+            compute();
+            Telemetry.record(Telemetry.Kind.craterReplanned, centerX, centerY, radius, edit.size(), 0, nanos);
+        }
+
+        Telemetry.record(Telemetry.Kind.craterPlaced, centerX, centerY, radius, charred, alien, 0L);
+        if (oresWanted > 0) Telemetry.record(Telemetry.Kind.oresPlaced, centerX, centerY, radius, oresSpawned, oresWanted, 0L);
+
+        edit.apply();
+        PhaseTimes.record(PhaseTimes.Phase.craterApply, Time.timeSinceNanos(start));
+    }
+
+    private void tileChanged(Tile tile) {
+        if (tile.x >= x1 && tile.y >= y1 && tile.x < x1 + width && tile.y < y1 + height) dirty = true;
+    }
+
+    /**
+     * Copies the tiles the crater reads and resolves their generator floors, main thread only
+     */
+    private void capture() {
+        x1 = Math.max(centerX - radius, 0);
+        y1 = Math.max(centerY - radius, 0);
+        // Empty if the center is outside the map (world reloaded since the spawn)
+        width = Math.max(Math.min(centerX + radius, Vars.world.width() - 1) - x1 + 1, 0);
+        height = Math.max(Math.min(centerY + radius, Vars.world.height() - 1) - y1 + 1, 0);
+
+        int size = width * height;
+        if (flags == null || flags.length < size) {
+            flags = new byte[size];
+            alienFloors = new short[size];
+        }
+        FloorCache craterFloors = FloorCache.of(generators[planet]);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = x + y * width;
+                Tile tile = Vars.world.tiles.get(x1 + x, y1 + y);
+
+                byte flag = 0;
+                if (tile.block() instanceof CoreBlock) flag |= flagCore;
+                if (tile.data > 0) flag |= flagData;
+                if (tile.overlay() == Blocks.air) flag |= flagOverlayAir;
+                if (tile.floor().hasSurface()) flag |= flagSurface;
+
+                int alienFloor = craterFloors.floorId(x1 + x, y1 + y);
+                if (Vars.content.block(alienFloor).asFloor().hasSurface()) flag |= flagAlienSurface;
+                flags[i] = flag;
+                alienFloors[i] = (short) alienFloor;
+            }
+        }
+    }
+
+    /**
+     * Builds the edit from the copied tiles, same steps as the impact used to do on the live world.
+     * Only reads the copy, so it runs on any thread
+     * @return number of tiles the crater edited
+     */
+    int compute() {
+        long start = Time.nanos();
+        if (!shared) edit.clear();
+        int edited = edit.size();
+        charred = alien = oresSpawned = oresWanted = 0;
+        // Same stream as the planet draw of set, continued
+        Rand rand = this.rand;
+        rand.setSeed(seed);
+        rand.random(0, 2);
+
+        int[] spans = DiskStencil.spans(radius);
+
+        // Crater: inner area (0-80% radius) 80% charred floor, the rest and the border alien floor
+        float inner = radius * 0.8f;
+        float inner2 = inner * inner;
+        for (int dy = -radius; dy <= radius; dy++) {
+            int y = centerY + dy;
+            if (!inside(centerX, y)) continue;
+            int half = spans[dy + radius];
+
+            for (int x = Math.max(centerX - half, x1); x <= Math.min(centerX + half, x1 + width - 1); x++) {
+                int dx = x - centerX;
+                if (dx * dx + dy * dy <= inner2 && rand.nextFloat() < 0.8f) {
+                    edit.setFloor(Point2.pack(x, y), charrId);
+                    charred++;
+                } else {
+                    genTile(x, y, rand);
+                    alien++;
+                }
+            }
+        }
+
+        // 25% chance to spawn ores, 75% chance for 1-3 ores, 25% chance for 4-7 ores
+        if (ores.length > 0 && rand.nextFloat() < 0.25f) {
+            oresWanted = rand.nextFloat() < 0.75f ? rand.random(1, 3) : rand.random(4, 7);
+            oresSpawned = placeOres(oresWanted, rand);
+        }
+
+        nanos = Time.timeSinceNanos(start);
+        PhaseTimes.record(PhaseTimes.Phase.craterCompute, nanos);
+        return edit.size() - edited;
+    }
+
+    /**
+     * Places ores on the disk tiles that will have a surface and no overlay once the edit is applied
+     * @param wanted - ores wanted
+     * @param rand - random stream of the crater
+     * @return number of ores placed
+     */
+    int placeOres(int wanted, Rand rand) {
+        int[] spans = DiskStencil.spans(radius);
+        oreSampler.reset(width, height);
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            int y = centerY + dy;
+            if (!inside(centerX, y)) continue;
+            int half = spans[dy + radius];
+
+            for (int x = Math.max(centerX - half, x1); x <= Math.min(centerX + half, x1 + width - 1); x++) {
+                int i = index(x, y), pos = Point2.pack(x, y);
+                if ((flags[i] & flagCore) != 0 || !overlayAir(pos, i)) continue;
+
+                int floor = edit.floorId(pos);
+                boolean surface = floor == -1 ? (flags[i] & flagSurface) != 0 :
+                        floor == charrId || (flags[i] & flagAlienSurface) != 0;
+                if (surface) oreSampler.add(i);
+            }
+        }
+
+        oreTiles.clear();
+        oreTypes.clear();
+        int placed = oreSampler.pick(wanted, ores.length, rand, oreTiles, oreTypes);
+
+        for (int n = 0; n < placed; n++) {
+            int i = oreTiles.items[n];
+            edit.setOverlay(Point2.pack(x1 + i % width, y1 + i / width), ores[oreTypes.items[n]]);
+        }
+        return placed;
+    }
+
+    /**
+     * Brings a planet invasion to a tile (floor from another planet in the game), under the block if there is one
+     */
+    private void genTile(int x, int y, Rand rand) {
+        int i = index(x, y);
+        if ((flags[i] & (flagCore | flagData)) != 0) return;
+
+        int pos = Point2.pack(x, y);
+        edit.setFloor(pos, alienFloors[i]);
+
+        // 15% chance to preserve existing ore in that tile
+        if (overlayAir(pos, i) || rand.nextFloat() > 0.15f) {
+            edit.setOverlay(pos, airId);
+        }
+    }
+
+    private boolean overlayAir(int pos, int index) {
+        int overlay = edit.overlayId(pos);
+        return overlay == -1 ? (flags[index] & flagOverlayAir) != 0 : overlay == airId;
+    }
+
+    private boolean inside(int x, int y) {
+        return x >= x1 && y >= y1 && x < x1 + width && y < y1 + height;
+    }
+
+    private int index(int x, int y) {
+        return (x - x1) + (y - y1) * width;
+    }
+}
@@ -0,0 +1,177 @@
+package EarthquakeAsteroidMod;
+
+import arc.Events;
+import mindustry.Vars;
+import mindustry.game.EventType;
+import mindustry.world.Block;
+import mindustry.world.Tile;
+
+/**
+ * Per-world summed-area table (integral image) of breakable buildings.
+ * Built once when a world loads and patched from tile change events, so counting
+ * the breakable builds around a candidate tile doesn't need to walk the tiles.
+ */
+public class DensityGrid {
+    private static DensityGrid current;
+    // Largest block size in the loaded content, bounds the area a single tile change can affect
+    private static int maxBlockSize = 1;
+
+    public final int width, height;
+    // 1 if the tile holds a breakable build, 0 otherwise
+    private final byte[] cells;
+    // (width + 1) * (height + 1) prefix sums, row 0 and column 0 are always 0
+    private final int[] sums;
+    // First row whose prefix sums are out of date, height if everything is up to date
+    private int dirtyRow;
+
+    public DensityGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        cells = new byte[width * height];
+        sums = new int[(width + 1) * (height + 1)];
+        dirtyRow = 0;
+    }
+
+    /**
+     * Registers the world load and tile change listeners that keep the grid up to date
+     */
+    public static void init() {
+        Events.on(EventType.WorldLoadEvent.class, e -> {
+            maxBlockSize = 1;
+            for (Block block : Vars.content.blocks()) maxBlockSize = Math.max(maxBlockSize, block.size);
+
+            current = fromWorld();
+        });
+
+        // Covers blocks being built, deconstructed and destroyed
+        Events.on(EventType.TileChangeEvent.class, e -> {
+            if (current != null) current.refreshAround(e.tile);
+        });
+    }
+
+    /**
+     * @return the grid of the loaded world, null if no world was loaded yet
+     */
+    public static DensityGrid current() {
+        DensityGrid grid = current;
+        if (grid == null || grid.width != Vars.world.width() || grid.height != Vars.world.height()) return null;
+        return grid;
+    }
+
+    /**
+     * Builds a grid from every tile of the loaded world
+     * @return the new grid
+     */
+    private static DensityGrid fromWorld() {
+        DensityGrid grid = new DensityGrid(Vars.world.width(), Vars.world.height());
+        for (Tile tile : Vars.world.tiles) {
+            if (BlockLogic.isBreakable(tile) && tile.build != null) grid.cells[tile.array()] = 1;
+        }
+        grid.updateSums();
+        return grid;
+    }
+
+    /**
+     * Re-reads every tile a block placed or removed on this tile may cover
+     * @param tile - tile that changed
+     */
+    private void refreshAround(Tile tile) {
+        int minX = Math.max(tile.x - maxBlockSize, 0), maxX = Math.min(tile.x + maxBlockSize, width - 1);
+        int minY = Math.max(tile.y - maxBlockSize, 0), maxY = Math.min(tile.y + maxBlockSize, height - 1);
+
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                Tile other = Vars.world.tiles.get(x, y);
+                set(x, y, BlockLogic.isBreakable(other) && other.build != null);
+            }
+        }
+    }
+
+    /**
+     * Marks a tile as breakable or not, sums are updated lazily on the next query
+     * @param x - tile x position
+     * @param y - tile y position
+     * @param breakable - whether the tile holds a breakable build
+     */
+    public void set(int x, int y, boolean breakable) {
+        byte value = breakable ? (byte) 1 : (byte) 0;
+        int index = x + y * width;
+        if (cells[index] == value) return;
+
+        cells[index] = value;
+        if (y < dirtyRow) dirtyRow = y;
+    }
+
+    /**
+     * Copies part of the grid into a new grid that isn't patched by tile events,
+     * its sums are computed up front so it can be read from other threads
+     * @param x - left tile of the region
+     * @param y - bottom tile of the region
+     * @param w - width of the region, must fit inside the grid
+     * @param h - height of the region, must fit inside the grid
+     * @return the copied region
+     */
+    public DensityGrid region(int x, int y, int w, int h) {
+        DensityGrid copy = new DensityGrid(w, h);
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(cells, x + (y + row) * width, copy.cells, row * w, w);
+        }
+        copy.updateSums();
+        return copy;
+    }
+
+    /**
+     * Recomputes the prefix sums from the first changed row down
+     */
+    private void updateSums() {
+        int stride = width + 1;
+        for (int y = dirtyRow; y < height; y++) {
+            int row = (y + 1) * stride, above = y * stride, cell = y * width;
+            int rowSum = 0;
+            for (int x = 0; x < width; x++) {
+                rowSum += cells[cell + x];
+                sums[row + x + 1] = sums[above + x + 1] + rowSum;
+            }
+        }
+        dirtyRow = height;
+    }
+
+    /**
+     * Counts breakable builds in a rectangle, clipped to the map
+     * @param x1 - left tile (inclusive)
+     * @param y1 - bottom tile (inclusive)
+     * @param x2 - right tile (inclusive)
+     * @param y2 - top tile (inclusive)
+     * @return number of breakable builds in the rectangle
+     */
+    public int countRect(int x1, int y1, int x2, int y2) {
+        if (dirtyRow < height) updateSums();
+
+        x1 = Math.max(x1, 0); y1 = Math.max(y1, 0);
+        x2 = Math.min(x2, width - 1); y2 = Math.min(y2, height - 1);
+        if (x1 > x2 || y1 > y2) return 0;
+
+        int stride = width + 1;
+        return sums[(y2 + 1) * stride + x2 + 1] - sums[y1 * stride + x2 + 1]
+                - sums[(y2 + 1) * stride + x1] + sums[y1 * stride + x1];
+    }
+
+    /**
+     * Counts breakable builds in a disk, one rectangle lookup per row
+     * (same tiles as checking Mathf.dst(0, 0, dx, dy) <= radius)
+     * @param x - tile x position of the center
+     * @param y - tile y position of the center
+     * @param radius - radius of the disk
+     * @return number of breakable builds in the disk
+     */
+    public int countDisk(int x, int y, int radius) {
+        int[] rows = DiskStencil.spans(radius);
+        int count = 0;
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            int half = rows[dy + radius];
+            count += countRect(x - half, y + dy, x + half, y + dy);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,71 @@
+package EarthquakeAsteroidMod;
+
+import arc.graphics.Color;
+import arc.graphics.g2d.Lines;
+import mindustry.Vars;
+import mindustry.entities.Effect;
+
+import static arc.graphics.g2d.Draw.color;
+import static arc.graphics.g2d.Lines.stroke;
+
+/**
+ * Effects of the disasters, created once at init.
+ * Every new Effect takes an id in the global effect list, so the per-event values are passed
+ * through the effect call instead (rotation holds the radius in tiles, color the fade color)
+ * and the draw lambdas don't capture anything.
+ */
+public class DisasterEffects {
+    // Multipliers of the earthquake rings, in world units per tile of radius
+    private static final float[] quakeRings = { 2f, 4f, 8f };
+
+    /** Earthquake rings. rotation = radius in tiles, color = color the rings fade to */
+    public static Effect quakeShock;
+    /** Asteroid impact rings. rotation = impact radius in tiles */
+    public static Effect impact;
+
+    /**
+     * Creates the effects, called once when the mod loads
+     */
+    public static void init() {
+        quakeShock = new Effect(150f, 400f, e -> {
+            color(Color.white, e.color, e.fin());
+            stroke(e.fout() * 3f + 0.5f);
+
+            for (float ring : quakeRings) {
+                Lines.circle(e.x, e.y, e.fin() * e.rotation * ring);
+            }
+        });
+
+        impact = new Effect(120f, 400f, e -> {
+            color(Color.white, Color.orange, e.fin());
+            stroke(e.fout() * 6f + 1f);
+            Lines.circle(e.x, e.y, e.fin() * e.rotation * Vars.tilesize * 2);
+
+            color(Color.yellow, Color.red, e.fin());
+            Lines.circle(e.x, e.y, e.fin() * e.rotation * Vars.tilesize);
+        });
+    }
+
+    /**
+     * Shows the earthquake rings, the outer one reaches the radius at the end of the duration
+     * @param x - world x position
+     * @param y - world y position
+     * @param radius - radius in tiles
+     * @param duration - lifetime in ticks
+     */
+    public static void quakeShock(float x, float y, int radius, float duration) {
+        // The lifetime is copied into the effect state when it is created, so it can vary per call
+        quakeShock.lifetime = duration;
+        quakeShock.at(x, y, radius, Color.lightGray);
+    }
+
+    /**
+     * Shows the asteroid impact rings
+     * @param x - world x position
+     * @param y - world y position
+     * @param radius - impact radius in tiles
+     */
+    public static void impact(float x, float y, int radius) {
+        impact.at(x, y, radius);
+    }
+}
@@ -0,0 +1,96 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import arc.struct.Seq;
+import arc.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seeds of the random streams used by disasters.
+ * A master seed is split into channels (events, scheduler, each planner), each channel hands out one
+ * seed per use, and an event seed is split again per phase (target, shape, crater), so every
+ * phase draws from its own stream and gets the same numbers whatever ran before it or on which thread.
+ * Seeds are mixed with SplitMix64, they are pure functions of the master seed and the counters.
+ * Event seeds are logged with the events, setting the master seed replays the same sequence.
+ */
+public class DisasterRandom {
+    /** Phases of an event, each one gets its own stream */
+    public static final int target = 1, shape = 2, crater = 3;
+
+    private static final long golden = 0x9e3779b97f4a7c15L;
+    private static final Seq<Channel> channels = new Seq<>();
+    private static volatile long master = new Rand().nextLong();
+
+    /** One seed per disaster event */
+    public static final Channel events = channel("events");
+
+    /** Sequence of seeds for one consumer */
+    public static class Channel {
+        private final long id;
+        private final AtomicLong count = new AtomicLong();
+
+        private Channel(String name) {
+            id = name.hashCode();
+        }
+
+        /**
+         * @return the next seed of the channel, safe to call from any thread
+         */
+        public long next() {
+            return mix(mix(master + id * golden) + count.getAndIncrement() * golden);
+        }
+    }
+
+    /**
+     * @param name - name of the channel, channels with different names give unrelated seeds
+     * @return a new channel
+     */
+    public static synchronized Channel channel(String name) {
+        Channel channel = new Channel(name);
+        channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * Sets the master seed and restarts every channel
+     * @param seed - master seed
+     */
+    public static synchronized void setSeed(long seed) {
+        master = seed;
+        for (Channel channel : channels) channel.count.set(0);
+        Log.info("[RNG] Master seed " + Long.toHexString(seed));
+    }
+
+    /**
+     * @return the master seed
+     */
+    public static long seed() {
+        return master;
+    }
+
+    /**
+     * @param seed - event seed
+     * @param phase - phase of the event (target, shape...) or any other index
+     * @return seed of that phase
+     */
+    public static long split(long seed, int phase) {
+        return mix(seed + (phase + 1) * golden);
+    }
+
+    /**
+     * @param seed - event seed
+     * @param phase - phase of the event
+     * @return random stream of that phase, only use it on one thread
+     */
+    public static Rand stream(long seed, int phase) {
+        return new Rand(split(seed, phase));
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,92 @@
+package EarthquakeAsteroidMod;
+
+import arc.util.Log;
+import arc.util.Time;
+import mindustry.io.SaveFileReader;
+import mindustry.io.SaveVersion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Keeps the disasters in progress (falling asteroids, earthquake waves) in a custom chunk of the map save.
+ * The chunk is a version byte, the payload length and the payload, written field by field by
+ * AsteroidPool.write and EarthquakeMod.write, so an event costs a few dozen bytes and loading is a
+ * plain read. Nothing is written when no disaster is running, loading such a save costs nothing.
+ * The chunk is read after the world is loaded, once the WorldLoadEvent listeners cleared the old events.
+ */
+public class DisasterSave implements SaveFileReader.CustomChunk {
+    /** Layout of the payload, bump it when the layout changes */
+    public static final int version = 4;
+
+    private static final String chunkName = MainMod.name("disasters");
+
+    private final AsteroidMod asteroid;
+    private final EarthquakeMod earthquake;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private DisasterSave(AsteroidMod asteroid, EarthquakeMod earthquake) {
+        this.asteroid = asteroid;
+        this.earthquake = earthquake;
+    }
+
+    /**
+     * Registers the chunk
+     * @param asteroid - asteroids to save
+     * @param earthquake - earthquakes to save
+     */
+    public static void init(AsteroidMod asteroid, EarthquakeMod earthquake) {
+        SaveVersion.addCustomChunk(chunkName, new DisasterSave(asteroid, earthquake));
+    }
+
+    @Override
+    public boolean shouldWrite() {
+        return asteroid.isActive() || earthquake.isActive();
+    }
+
+    @Override
+    public boolean writeNet() {
+        // Clients don't run disasters, they only get the resulting tile edits
+        return false;
+    }
+
+    @Override
+    public void write(DataOutput stream) throws IOException {
+        long start = Time.nanos();
+
+        // Written to a buffer first for the length, so a newer layout can be skipped by an older mod
+        buffer.reset();
+        DataOutputStream out = new DataOutputStream(buffer);
+        asteroid.write(out);
+        earthquake.write(out);
+
+        stream.writeByte(version);
+        stream.writeInt(buffer.size());
+        stream.write(buffer.toByteArray());
+
+        long nanos = Time.timeSinceNanos(start);
+        PhaseTimes.record(PhaseTimes.Phase.saveWrite, nanos);
+        Telemetry.record(Telemetry.Kind.disastersSaved, 0, 0, 0, buffer.size() + 5, 0, nanos);
+    }
+
+    @Override
+    public void read(DataInput stream) throws IOException {
+        long start = Time.nanos();
+        int saved = stream.readUnsignedByte();
+        int length = stream.readInt();
+
+        if (saved != version) {
+            Log.warn("[SAVE] Disasters saved with layout " + saved + ", this version reads " + version + ", they are dropped");
+            stream.readFully(new byte[length]);
+            return;
+        }
+
+        int events = asteroid.read(stream) + earthquake.read(stream);
+        long nanos = Time.timeSinceNanos(start);
+        PhaseTimes.record(PhaseTimes.Phase.saveRead, nanos);
+        Telemetry.record(Telemetry.Kind.disastersLoaded, 0, 0, 0, events, length + 5, nanos);
+    }
+}
@@ -0,0 +1,158 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import arc.util.Log;
+
+/**
+ * Decides when each disaster fires.
+ * Every registered disaster draws its next fire time from an exponential distribution (what a
+ * per-frame chance converges to), the times are kept in a small binary heap and a frame only
+ * compares the clock with the earliest one. New disaster types register here instead of adding
+ * their own per-frame listener and chance roll.
+ */
+public class DisasterScheduler {
+    /** Ticks in an hour of game time */
+    public static final float hour = 60f * 60f * 60f;
+
+    // Every draw is reseeded from the channel, so fire times only depend on the master seed
+    private final DisasterRandom.Channel seeds = DisasterRandom.channel("scheduler");
+    private final Rand rand = new Rand();
+    private Entry[] heap = new Entry[4];
+    private int size;
+    // Ticks counted while the game is running
+    private double time;
+
+    private static class Entry {
+        final String name;
+        final Runnable fire;
+        float meanTicks;
+        double next;
+
+        Entry(String name, float meanTicks, Runnable fire) {
+            this.name = name;
+            this.meanTicks = meanTicks;
+            this.fire = fire;
+        }
+    }
+
+    /**
+     * Registers a disaster
+     * @param name - disaster name, used to change its mean and for logging
+     * @param meanTicks - average ticks between two events (see hour)
+     * @param fire - starts the disaster, called on the main thread
+     */
+    public void register(String name, float meanTicks, Runnable fire) {
+        Entry entry = new Entry(name, meanTicks, fire);
+        entry.next = time + draw(meanTicks);
+
+        if (size == heap.length) {
+            Entry[] grown = new Entry[size * 2];
+            System.arraycopy(heap, 0, grown, 0, size);
+            heap = grown;
+        }
+        heap[size] = entry;
+        siftUp(size++);
+
+        Log.info("[SCHEDULER] Registered " + name + ", one every " + meanTicks / hour + "h on average");
+    }
+
+    /**
+     * Changes how often a disaster fires, and draws its next time again
+     * @param name - disaster name
+     * @param meanTicks - average ticks between two events
+     * @return false if no disaster has that name
+     */
+    public boolean setMean(String name, float meanTicks) {
+        for (int i = 0; i < size; i++) {
+            if (!heap[i].name.equals(name)) continue;
+
+            heap[i].meanTicks = meanTicks;
+            heap[i].next = time + draw(meanTicks);
+            // The new time can be earlier or later
+            siftDown(siftUp(i));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Draws the next time of every disaster again, after the master seed changed
+     */
+    public void reschedule() {
+        for (int i = 0; i < size; i++) heap[i].next = time + draw(heap[i].meanTicks);
+        for (int i = size / 2 - 1; i >= 0; i--) siftDown(i);
+    }
+
+    /**
+     * Advances the clock and fires the disasters that are due
+     * @param delta - ticks since the last update
+     */
+    public void update(float delta) {
+        time += delta;
+
+        while (size > 0 && heap[0].next <= time) {
+            Entry entry = heap[0];
+            entry.next = time + draw(entry.meanTicks);
+            siftDown(0);
+            entry.fire.run();
+        }
+    }
+
+    /**
+     * @param name - disaster name
+     * @return ticks until that disaster fires, -1 if no disaster has that name
+     */
+    public double ticksUntil(String name) {
+        for (int i = 0; i < size; i++) {
+            if (heap[i].name.equals(name)) return heap[i].next - time;
+        }
+        return -1;
+    }
+
+    /**
+     * @return one line per disaster: its average hours between two events and the hours until the next one
+     */
+    public String summary() {
+        StringBuilder out = new StringBuilder("disaster: mean next (h)");
+        for (int i = 0; i < size; i++) {
+            String name = heap[i].name;
+            out.append('\n').append(name).append(": ").append(hours(heap[i].meanTicks)).append(' ').append(hours(ticksUntil(name)));
+        }
+        return out.toString();
+    }
+
+    private static String hours(double ticks) {
+        return String.valueOf(Math.round(ticks / hour * 100) / 100.0);
+    }
+
+    // Exponential distribution with the given mean (inverse transform)
+    private double draw(float meanTicks) {
+        rand.setSeed(seeds.next());
+        return -meanTicks * Math.log(1.0 - rand.nextDouble());
+    }
+
+    private int siftUp(int i) {
+        Entry entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent].next <= entry.next) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+        return i;
+    }
+
+    private void siftDown(int i) {
+        Entry entry = heap[i];
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1].next < heap[child].next) child++;
+            if (entry.next <= heap[child].next) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+    }
+}
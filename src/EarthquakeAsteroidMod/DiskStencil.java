@@ -0,0 +1,108 @@
+package EarthquakeAsteroidMod;
+
+import arc.func.Boolf;
+import arc.math.geom.Point2;
+import mindustry.Vars;
+import mindustry.world.Tile;
+import mindustry.world.Tiles;
+
+/**
+ * Shared disk iteration for every radius scan.
+ * A disk of radius r holds the cells with dx * dx + dy * dy <= r * r (same as Mathf.dst(0, 0, dx, dy) <= r),
+ * stored as the half width of each row so scans don't need a sqrt or a bounds check per cell.
+ */
+public class DiskStencil {
+    /** Largest radius kept in the cache (above every event radius, showers search 40), bigger disks are computed on demand */
+    public static final int maxCachedRadius = 64;
+    private static final int[][] spans = new int[maxCachedRadius + 1][];
+
+    /** Called for every tile of a disk */
+    public interface Visitor {
+        /**
+         * @param tile - tile inside the disk
+         * @param pos - packed position of the tile (Point2.pack)
+         * @param dst2 - squared distance to the center, in tiles
+         */
+        void visit(Tile tile, int pos, int dst2);
+    }
+
+    static {
+        for (int r = 0; r <= maxCachedRadius; r++) spans[r] = computeSpans(r);
+    }
+
+    private static int[] computeSpans(int radius) {
+        int[] rows = new int[radius * 2 + 1];
+        int r2 = radius * radius;
+        int half = radius;
+
+        for (int dy = 0; dy <= radius; dy++) {
+            while (half * half + dy * dy > r2) half--;
+            rows[radius + dy] = half;
+            rows[radius - dy] = half;
+        }
+        return rows;
+    }
+
+    /**
+     * Half widths of each row of a disk, do not modify
+     * @param radius - radius of the disk
+     * @return array of 2 * radius + 1 half widths, index 0 is the row at dy = -radius
+     */
+    public static int[] spans(int radius) {
+        return radius <= maxCachedRadius ? spans[radius] : computeSpans(radius);
+    }
+
+    /**
+     * Visits every tile of a disk that is inside the map, row by row
+     * @param centerX - tile x position of the center
+     * @param centerY - tile y position of the center
+     * @param radius - radius of the disk
+     * @param visitor - called for every tile
+     */
+    public static void each(int centerX, int centerY, int radius, Visitor visitor) {
+        Tiles tiles = Vars.world.tiles;
+        int width = tiles.width, height = tiles.height;
+        int[] rows = spans(radius);
+
+        int minDy = Math.max(-radius, -centerY), maxDy = Math.min(radius, height - 1 - centerY);
+        for (int dy = minDy; dy <= maxDy; dy++) {
+            int half = rows[dy + radius];
+            int y = centerY + dy;
+            int minX = Math.max(centerX - half, 0), maxX = Math.min(centerX + half, width - 1);
+            int row = y * width;
+            int dy2 = dy * dy;
+
+            for (int x = minX; x <= maxX; x++) {
+                int dx = x - centerX;
+                visitor.visit(tiles.geti(row + x), Point2.pack(x, y), dx * dx + dy2);
+            }
+        }
+    }
+
+    /**
+     * Counts the tiles of a disk that match a condition
+     * @param centerX - tile x position of the center
+     * @param centerY - tile y position of the center
+     * @param radius - radius of the disk
+     * @param pred - condition to check
+     * @return number of matching tiles
+     */
+    public static int count(int centerX, int centerY, int radius, Boolf<Tile> pred) {
+        Tiles tiles = Vars.world.tiles;
+        int width = tiles.width, height = tiles.height;
+        int[] rows = spans(radius);
+        int count = 0;
+
+        int minDy = Math.max(-radius, -centerY), maxDy = Math.min(radius, height - 1 - centerY);
+        for (int dy = minDy; dy <= maxDy; dy++) {
+            int half = rows[dy + radius];
+            int minX = Math.max(centerX - half, 0), maxX = Math.min(centerX + half, width - 1);
+            int row = (centerY + dy) * width;
+
+            for (int x = minX; x <= maxX; x++) {
+                if (pred.get(tiles.geti(row + x))) count++;
+            }
+        }
+        return count;
+    }
+}
@@ -1,21 +1,37 @@
 package EarthquakeAsteroidMod;
 
 import arc.Events;
-import arc.graphics.Color;
-import arc.graphics.g2d.Lines;
-import arc.math.Mathf;
+import arc.math.Rand;
+import arc.math.geom.Point2;
 import arc.struct.Seq;
 import arc.util.Log;
+import arc.util.Time;
 import mindustry.Vars;
-import mindustry.entities.Effect;
 import mindustry.game.EventType;
+import mindustry.gen.Building;
 import mindustry.world.Tile;
 import mindustry.world.blocks.environment.Floor;
 
-import static arc.graphics.g2d.Draw.color;
-import static arc.graphics.g2d.Lines.stroke;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class EarthquakeMod {
+    private static final int maxRange = 80;
+
+    /** Height of the initial ground pulse per point of shake intensity */
+    public static float amplitudeScale = 0.5f;
+    /** Damage per squared unit of peak ground acceleration, per tile of block size */
+    public static float quakeDamage = 3000f;
+    // Radius of the next earthquake, picked in advance so its epicenter can be searched in the background
+    private int nextMaxRadius;
+    private TargetPlanner planner;
+    // Reused by every earthquake
+    private final RegionCollector region = new RegionCollector();
+    private final Seq<Tile> linkedTiles = new Seq<>();
+    private final TerrainEdit edit = new TerrainEdit();
+    // Destruction waves still running, kept to write them to saves
+    private final Seq<Wave> waves = new Seq<>();
 
     /**
      * Initializes an earthquake
@@ -25,29 +41,36 @@ public class EarthquakeMod {
         Log.info("[EARTHQUAKE] MOD CONSTRUCTOR CALLED!");
         Log.info("[EARTHQUAKE] ========================================");
 
-        Events.run(EventType.Trigger.update, () -> {
-            if (!MainMod.isRunning()) return;
+        nextMaxRadius = determineEarthquakeMax(DisasterRandom.stream(DisasterRandom.events.next(), DisasterRandom.shape));
+        planner = new TargetPlanner("EARTHQUAKE", maxRange, nextMaxRadius);
 
-            // Chance, on average, of one event every 6 hours
-            if (Mathf.chanceDelta(0.000000772f)) {
-                Log.info("[EARTHQUAKE] *** EARTHQUAKE TRIGGERED! ***");
-                destroyBlocksAroundEpicenter();
-            }
-        });
+        // On average, one event every 6 hours
+        MainMod.scheduler.register("earthquake", 6 * DisasterScheduler.hour, this::destroyBlocksAroundEpicenter);
+
+        // The scheduler drops the waves of the previous world
+        Events.on(EventType.WorldLoadEvent.class, e -> waves.clear());
 
         Log.info("[EARTHQUAKE] Mod initialization complete!");
     }
 
+    /**
+     * Draws the radius of the next earthquake again, after the master seed changed
+     */
+    public void reseed() {
+        nextMaxRadius = determineEarthquakeMax(DisasterRandom.stream(DisasterRandom.events.next(), DisasterRandom.shape));
+        planner.setRadius(nextMaxRadius);
+    }
+
     /**
      * Determines earthquake size
+     * @param rand - random stream of the event
      * @return max radius of the earthquake
      */
     // ------------------- EARTHQUAKE SYSTEM --------------------------
-    private int determineEarthquakeMax(){
+    private int determineEarthquakeMax(Rand rand){
         // Determine earthquake size
-        int blocksToDestroy = Mathf.random(5, 25);
-        int maxRadius = (blocksToDestroy >= 15) ? Mathf.random(14, 20) : Mathf.random(6, 12);
-        Log.info("[EARTHQUAKE] Target: " + blocksToDestroy + " blocks, Radius: " + maxRadius);
+        int blocksToDestroy = rand.random(5, 25);
+        int maxRadius = (blocksToDestroy >= 15) ? rand.random(14, 20) : rand.random(6, 12);
         return maxRadius;
     }
 
@@ -59,84 +82,40 @@ public class EarthquakeMod {
      * @param intensity - intensity of the earthquake (for shaking the screen)
      * @param duration - duration of the earthquake (for shaking the screen)
      */
-    private void applyEarthquakeEffects(int epicenterX, int epicenterY, int maxRadius, float intensity, float duration){
+    void applyEarthquakeEffects(int epicenterX, int epicenterY, int maxRadius, float intensity, float duration){
         float worldX = epicenterX * Vars.tilesize;
         float worldY = epicenterY * Vars.tilesize;
 
-        Effect slowShock = new Effect(150f, 400f, e -> {
-            color(Color.white, Color.lightGray, e.fin());
-            stroke(e.fout() * 3f + 0.5f);
-
-            float[] radius = { maxRadius*2f, maxRadius*4f, maxRadius*8f };
-            for (float r : radius) {
-                Lines.circle(e.x, e.y, e.fin() * r);
-            }
-        });
-
-        slowShock.at(worldX, worldY);
-        Vars.renderer.shake(intensity, duration);
-    }
-
-    /**
-     * Find breakable blocks around a tile
-     * @param maxRadius - radius to check around tile
-     * @param epicenterX - tile position x
-     * @param epicenterY - tile position y
-     * @param checkedMultiBlocks - multiblocks that have been found inside the radius
-     * @param breakableBlocks - blocks that have been found inside the radius
-     */
-    private void findBreakableBlocks(int maxRadius, int epicenterX, int epicenterY, Seq<Tile> checkedMultiBlocks, Seq<Tile> breakableBlocks){
-        for (int dx = -maxRadius; dx <= maxRadius; dx++) {
-            for (int dy = -maxRadius; dy <= maxRadius; dy++) {
-                if (Mathf.dst(0, 0, dx, dy) > maxRadius) continue;
-
-                Tile tile = Vars.world.tile(epicenterX + dx, epicenterY + dy);
-                if (!BlockLogic.isBreakable(tile)) continue;
-
-                if (tile.build != null && tile.build.block.size > 1) {
-                    if (!checkedMultiBlocks.contains(tile.build.tile)) {
-                        checkedMultiBlocks.add(tile.build.tile);
-                        breakableBlocks.add(tile.build.tile);
-                    }
-                } else {
-                    breakableBlocks.add(tile);
-                }
-            }
-        }
+        // The outer ring reaches maxRadius tiles when the shake ends, together with the destruction wave
+        DisasterEffects.quakeShock(worldX, worldY, maxRadius, duration);
+        if (Vars.renderer != null) Vars.renderer.shake(intensity, duration);
     }
 
     /**
-     * Destroy blocks
-     * @param blocksToDestroy - number of blocks to destroy
-     * @param breakableBlocks - minimum blocks destroyed
-     * @return number of blocks destroyed
+     * Destroys a breakable building, every tile of it for multiblocks
+     * @param tile - tile of the building
+     * @return number of tiles destroyed
      */
-    private int destroyBlocks(int blocksToDestroy, Seq<Tile> breakableBlocks){
-        int toDestroy = Math.min(blocksToDestroy, breakableBlocks.size);
-        breakableBlocks.shuffle();
-
+    private int destroyBuilding(Tile tile){
         int destroyed = 0;
-        for (int i = 0; i < toDestroy; i++) {
-            Tile tile = breakableBlocks.get(i);
-
-            if (tile.build != null && tile.build.block.size > 1) {
-                Seq<Tile> linkedTiles = new Seq<>();
-                tile.getLinkedTiles(linkedTiles);
-                for (Tile t : linkedTiles) {
-                    if (destroyTile(t)) destroyed++;
-                }
-            } else {
-                if (destroyTile(tile)) destroyed++;
+
+        if (tile.build != null && tile.build.block.size > 1) {
+            tile.getLinkedTiles(linkedTiles);
+            for (int j = 0; j < linkedTiles.size; j++) {
+                if (destroyTile(linkedTiles.get(j))) destroyed++;
             }
+            linkedTiles.clear();
+        } else {
+            if (destroyTile(tile)) destroyed++;
         }
         return destroyed;
     }
 
     private boolean destroyTile(Tile t){
         Floor newFloor = getNeighborFloor(t);
-        if (newFloor != null) t.setFloor(newFloor);
+        if (newFloor != null) edit.setFloor(t, newFloor);
 
-        return BlockLogic.destroyTile(t);
+        return BlockLogic.destroyTile(t, edit);
     }
 
     /**
@@ -144,13 +123,13 @@ public class EarthquakeMod {
      * @param tile - tile that will get the floor
      * @return true if floor found, false otherwise
      */
-    private static Floor getNeighborFloor(Tile tile) {
+    private Floor getNeighborFloor(Tile tile) {
         for (int i = 0; i < 4; i++) {
             Tile neighbor = tile.nearby(i);
-            if (neighbor != null && neighbor.floor() != null) return neighbor.floor();
+            if (neighbor != null && edit.floor(neighbor) != null) return edit.floor(neighbor);
         }
 
-        if (tile.floor() != null) return tile.floor();
+        if (edit.floor(tile) != null) return edit.floor(tile);
 
         return null;
     }
@@ -159,44 +138,231 @@ public class EarthquakeMod {
      * Gets valid tile (needs to have a breakable build/block) and destroys blocks around said tile
      */
     private void destroyBlocksAroundEpicenter() {
-        Log.info("[EARTHQUAKE] === START ===");
-        int blocksToDestroy = Mathf.random(5, 25);
-        int maxRadius = determineEarthquakeMax();
+        long start = Time.nanos();
+        long seed = DisasterRandom.events.next();
+        Rand rand = DisasterRandom.stream(seed, DisasterRandom.shape);
+        // Strong quakes (12 and above) shake harder and longer
+        int magnitude = rand.random(5, 25);
+        int maxRadius = nextMaxRadius;
+
+        // Use the epicenter found in the background, or the shared method if it went stale
+        Tile epicenterTile = planner.take(maxRadius);
+        if (epicenterTile == null) epicenterTile = BlockLogic.findValidTargetNearPlayer(maxRadius, maxRange, DisasterRandom.stream(seed, DisasterRandom.target));
+        PhaseTimes.record(PhaseTimes.Phase.quakeTarget, Time.timeSinceNanos(start));
 
-        // Use shared method to find epicenter near player
-        int maxRange = 80;
-        Tile epicenterTile = BlockLogic.findValidTargetNearPlayer(maxRadius, maxRange);
+        nextMaxRadius = determineEarthquakeMax(rand);
+        planner.setRadius(nextMaxRadius);
 
         if (epicenterTile == null)
             { Log.warn("[EARTHQUAKE] No valid epicenter found!"); return; }
 
         int epicenterX = epicenterTile.x;
         int epicenterY = epicenterTile.y;
-        Log.info("[EARTHQUAKE] Epicenter at (" + epicenterX + ", " + epicenterY + ")");
 
         // Apply effects
         float intensity, duration;
 
-        if (blocksToDestroy >= 12) {
-            intensity = Mathf.random(10.0f, 20.0f);
-            duration = Mathf.random(100.0f, 140.0f);
+        if (magnitude >= 12) {
+            intensity = rand.random(10.0f, 20.0f);
+            duration = rand.random(100.0f, 140.0f);
         } else {
-            intensity = Mathf.random(7.5f, 10.0f);
-            duration = Mathf.random(50.0f, 90.0f);
+            intensity = rand.random(7.5f, 10.0f);
+            duration = rand.random(50.0f, 90.0f);
         }
 
+        long phase = Time.nanos();
         applyEarthquakeEffects(epicenterX, epicenterY, maxRadius, intensity, duration);
+        EventSync.quake(epicenterX, epicenterY, maxRadius, intensity, duration);
+        PhaseTimes.record(PhaseTimes.Phase.quakeEffects, Time.timeSinceNanos(phase));
 
-        // Find ALL breakable blocks in radius
-        Seq<Tile> breakableBlocks = new Seq<>();
-        Seq<Tile> checkedMultiBlocks = new Seq<>();
+        // Every breakable building in the radius, the wave decides which ones break
+        phase = Time.nanos();
+        region.collect(epicenterX, epicenterY, maxRadius, BlockLogic::isBreakable, false);
+        Telemetry.record(Telemetry.Kind.quakeEpicenter, epicenterX, epicenterY, maxRadius, region.size());
 
-        findBreakableBlocks(maxRadius, epicenterX, epicenterY, checkedMultiBlocks, breakableBlocks);
+        start(new Wave(epicenterX, epicenterY, maxRadius, intensity * amplitudeScale, duration, region.positions.toArray()));
+        PhaseTimes.record(PhaseTimes.Phase.quakeCollect, Time.timeSinceNanos(phase));
+        Telemetry.record(Telemetry.Kind.quakeTriggered, epicenterX, epicenterY, maxRadius, magnitude, region.size(), Time.timeSinceNanos(start), seed);
+    }
 
-        int destroyed = destroyBlocks(blocksToDestroy, breakableBlocks);
+    private void start(Wave wave) {
+        waves.add(wave);
+        FrameScheduler.add(wave);
+    }
 
+    /**
+     * @return true if an earthquake is destroying blocks
+     */
+    public boolean isActive() {
+        return waves.size > 0;
+    }
 
+    /**
+     * Writes the running waves, field by field in a fixed layout: the count, then per wave
+     * epicenterX, epicenterY, maxRadius (shorts), amplitude, duration, elapsed (floats), solver steps done,
+     * destroyed, damaged (ints) and the buildings in its area (int count, then packed positions).
+     * The grid itself is not written, it is solved again up to the same step on load.
+     * @param out - stream to write to
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(waves.size);
+        for (int i = 0; i < waves.size; i++) {
+            Wave wave = waves.get(i);
+            out.writeShort(wave.epicenterX);
+            out.writeShort(wave.epicenterY);
+            out.writeShort(wave.maxRadius);
+            out.writeFloat(wave.amplitude);
+            out.writeFloat(wave.duration);
+            out.writeFloat(wave.elapsed);
+            out.writeInt(wave.grid.steps());
+            out.writeInt(wave.destroyed);
+            out.writeInt(wave.damaged);
+
+            out.writeInt(wave.buildings.length);
+            for (int pos : wave.buildings) out.writeInt(pos);
+        }
+    }
+
+    /**
+     * Restores the waves written by write, they continue where they were
+     * @param in - stream to read from
+     * @return number of waves restored
+     */
+    public int read(DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int n = 0; n < count; n++) {
+            int epicenterX = in.readShort(), epicenterY = in.readShort(), maxRadius = in.readShort();
+            float amplitude = in.readFloat(), duration = in.readFloat(), elapsed = in.readFloat();
+            int steps = in.readInt(), destroyed = in.readInt(), damaged = in.readInt();
+
+            int[] buildings = new int[in.readInt()];
+            for (int j = 0; j < buildings.length; j++) buildings[j] = in.readInt();
+
+            Wave wave = new Wave(epicenterX, epicenterY, maxRadius, amplitude, duration, buildings);
+            wave.elapsed = elapsed;
+            wave.destroyed = destroyed;
+            wave.damaged = damaged;
+            wave.resume(steps);
+            start(wave);
+        }
+        return count;
+    }
+
+    /**
+     * Seismic wave of an earthquake, solved on a SeismicGrid a few steps per frame so its front reaches
+     * the max radius when the shake ends. Each building takes damage from the peak ground acceleration
+     * at its tile as the wave passes: quakeDamage * peak^2 * block size in total, so buildings close to
+     * the epicenter and weak ones break first.
+     */
+    private class Wave implements FrameScheduler.Task {
+        private final int epicenterX, epicenterY, maxRadius, totalSteps;
+        private final float amplitude, duration;
+        private final SeismicGrid grid;
+        // Packed positions of the breakable buildings in the radius, -1 once gone
+        private final int[] buildings;
+        // Peak acceleration already turned into damage, per building
+        private final float[] applied;
+        private int destroyed, damaged;
+        private float elapsed;
+        private long nanos;
+
+        /**
+         * @param epicenterX - tile x position
+         * @param epicenterY - tile y position
+         * @param maxRadius - radius of the earthquake
+         * @param amplitude - height of the initial ground pulse
+         * @param duration - ticks for the front to reach the max radius
+         * @param buildings - packed positions of the breakable buildings in the radius (center tiles)
+         */
+        Wave(int epicenterX, int epicenterY, int maxRadius, float amplitude, float duration, int[] buildings) {
+            this.epicenterX = epicenterX;
+            this.epicenterY = epicenterY;
+            this.maxRadius = maxRadius;
+            this.amplitude = amplitude;
+            this.duration = duration;
+            this.buildings = buildings;
+            applied = new float[buildings.length];
+            grid = new SeismicGrid(epicenterX, epicenterY, maxRadius, amplitude);
+            totalSteps = SeismicGrid.stepsToReach(maxRadius);
+        }
+
+        /**
+         * Solves the grid up to a step without dealing damage, the damage up to there is already done
+         * @param steps - solver steps done when the wave was saved
+         */
+        void resume(int steps) {
+            while (grid.steps() < Math.min(steps, totalSteps)) grid.step();
+            for (int i = 0; i < buildings.length; i++) {
+                applied[i] = grid.peakAt(Point2.x(buildings[i]), Point2.y(buildings[i]));
+            }
+        }
+
+        @Override
+        public int step(long deadline, int tileBudget) {
+            long start = Time.nanos();
+            elapsed += Time.delta;
 
-        Log.info("[EARTHQUAKE] === END === Destroyed " + destroyed + " blocks");
+            // Solver steps due by now, at least one per frame while behind
+            int due = elapsed >= duration ? totalSteps : (int) (totalSteps * elapsed / duration);
+            if (grid.steps() < due) {
+                do grid.step(); while (grid.steps() < due && Time.nanos() < deadline);
+            }
+
+            int edited = damageBuildings(tileBudget);
+            if (edited > 0) edit.apply();
+
+            long stepNanos = Time.timeSinceNanos(start);
+            nanos += stepNanos;
+            PhaseTimes.record(PhaseTimes.Phase.quakeWaveStep, stepNanos);
+
+            // Keeps going while buildings are waiting for tile budget
+            if (grid.steps() < totalSteps || edited >= tileBudget) return edited;
+
+            Telemetry.record(Telemetry.Kind.quakeDestroyed, epicenterX, epicenterY, maxRadius, destroyed, damaged, nanos);
+            waves.remove(this, true);
+            return -1;
+        }
+
+        /**
+         * Deals the damage of the acceleration peaks reached since the last frame
+         * @param tileBudget - max tiles to destroy
+         * @return number of tiles destroyed
+         */
+        private int damageBuildings(int tileBudget) {
+            int edited = 0;
+            for (int i = 0; i < buildings.length; i++) {
+                int pos = buildings[i];
+                if (pos == -1) continue;
+
+                float peak = grid.peakAt(Point2.x(pos), Point2.y(pos));
+                if (peak <= applied[i]) continue;
+
+                // The building may already be gone (destroyed, deconstructed or hit by another event)
+                Tile tile = Vars.world.tile(pos);
+                if (tile == null || !BlockLogic.isBreakable(tile)) {
+                    buildings[i] = -1;
+                    continue;
+                }
+
+                int size = tile.block().size;
+                Building build = tile.build;
+                // Buildings take the new part of the damage, blocks without health need the whole of it
+                float damage = quakeDamage * size * (build != null ? peak * peak - applied[i] * applied[i] : peak * peak);
+                if (BlockLogic.wouldDestroy(tile, damage)) {
+                    // Retried on the next frame
+                    if (edited >= tileBudget) continue;
+                    edited += destroyBuilding(tile);
+                    destroyed++;
+                    buildings[i] = -1;
+                } else {
+                    if (build != null) {
+                        build.damage(damage);
+                        damaged++;
+                    }
+                    applied[i] = peak;
+                }
+            }
+            return edited;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,180 @@
+package EarthquakeAsteroidMod;
+
+import arc.util.io.Reads;
+import arc.util.io.Writes;
+import mindustry.Vars;
+import mindustry.net.Net;
+import mindustry.net.Packet;
+import mindustry.world.Tile;
+
+/**
+ * Sends the start of every disaster to the clients, so they can show it.
+ * Only the start goes out, a few dozen bytes per event: clients move the asteroids and play the effects
+ * themselves, from the same values and seeds as the server. The server stays in charge of what the
+ * disasters do, the damage and terrain changes only happen there and reach the clients through TileSync.
+ */
+public class EventSync {
+    private static AsteroidMod asteroid;
+    private static EarthquakeMod earthquake;
+
+    /**
+     * Registers the packets
+     * @param asteroid - asteroids started by the received packets
+     * @param earthquake - earthquakes started by the received packets
+     */
+    public static void init(AsteroidMod asteroid, EarthquakeMod earthquake) {
+        EventSync.asteroid = asteroid;
+        EventSync.earthquake = earthquake;
+        Net.registerPacket(AsteroidPacket::new);
+        Net.registerPacket(ShowerPacket::new);
+        Net.registerPacket(QuakePacket::new);
+    }
+
+    /**
+     * Sends a spawned asteroid to every client, on servers only
+     * @param targetX - world x position of the impact
+     * @param targetY - world y position of the impact
+     * @param angle - direction of the flight
+     * @param radius - impact radius
+     * @param warningTime - ticks of warning before the flight
+     * @param breakup - flight progress the asteroid breaks up at, above 1 if it doesn't
+     * @param craterSeed - crater seed of the asteroid, its fragments are drawn from it
+     */
+    static void asteroid(float targetX, float targetY, float angle, int radius, float warningTime, float breakup, long craterSeed) {
+        if (!Vars.net.server()) return;
+
+        AsteroidPacket packet = new AsteroidPacket();
+        packet.targetX = targetX;
+        packet.targetY = targetY;
+        packet.angle = angle;
+        packet.radius = radius;
+        packet.warningTime = warningTime;
+        packet.breakup = breakup;
+        packet.craterSeed = craterSeed;
+        Vars.net.send(packet, true);
+    }
+
+    /**
+     * Sends a meteor shower to every client, on servers only. Clients place the rocks again from the seed.
+     * @param center - tile the shower falls around
+     * @param seed - seed of the shower
+     */
+    static void shower(Tile center, long seed) {
+        if (!Vars.net.server()) return;
+
+        ShowerPacket packet = new ShowerPacket();
+        packet.centerX = center.x;
+        packet.centerY = center.y;
+        packet.seed = seed;
+        Vars.net.send(packet, true);
+    }
+
+    /**
+     * Sends an earthquake to every client, on servers only
+     * @param epicenterX - tile x position
+     * @param epicenterY - tile y position
+     * @param maxRadius - radius of the earthquake
+     * @param intensity - intensity of the screen shake
+     * @param duration - duration of the screen shake
+     */
+    static void quake(int epicenterX, int epicenterY, int maxRadius, float intensity, float duration) {
+        if (!Vars.net.server()) return;
+
+        QuakePacket packet = new QuakePacket();
+        packet.epicenterX = epicenterX;
+        packet.epicenterY = epicenterY;
+        packet.maxRadius = maxRadius;
+        packet.intensity = intensity;
+        packet.duration = duration;
+        Vars.net.send(packet, true);
+    }
+
+    /** Asteroid spawned by the server */
+    public static class AsteroidPacket extends Packet {
+        public float targetX, targetY, angle, warningTime, breakup;
+        public int radius;
+        public long craterSeed;
+
+        @Override
+        public void write(Writes write) {
+            write.f(targetX);
+            write.f(targetY);
+            write.f(angle);
+            write.b(radius);
+            write.f(warningTime);
+            write.f(breakup);
+            write.l(craterSeed);
+        }
+
+        @Override
+        public void read(Reads read) {
+            targetX = read.f();
+            targetY = read.f();
+            angle = read.f();
+            radius = read.ub();
+            warningTime = read.f();
+            breakup = read.f();
+            craterSeed = read.l();
+        }
+
+        @Override
+        public void handleClient() {
+            asteroid.addAsteroid(targetX, targetY, angle, radius, warningTime, breakup, craterSeed, null);
+        }
+    }
+
+    /** Meteor shower started by the server */
+    public static class ShowerPacket extends Packet {
+        public int centerX, centerY;
+        public long seed;
+
+        @Override
+        public void write(Writes write) {
+            write.s(centerX);
+            write.s(centerY);
+            write.l(seed);
+        }
+
+        @Override
+        public void read(Reads read) {
+            centerX = read.s();
+            centerY = read.s();
+            seed = read.l();
+        }
+
+        @Override
+        public void handleClient() {
+            Tile center = Vars.world.tile(centerX, centerY);
+            if (center != null) asteroid.addShower(center, seed);
+        }
+    }
+
+    /** Earthquake started by the server */
+    public static class QuakePacket extends Packet {
+        public int epicenterX, epicenterY, maxRadius;
+        public float intensity, duration;
+
+        @Override
+        public void write(Writes write) {
+            write.s(epicenterX);
+            write.s(epicenterY);
+            write.s(maxRadius);
+            write.f(intensity);
+            write.f(duration);
+        }
+
+        @Override
+        public void read(Reads read) {
+            epicenterX = read.s();
+            epicenterY = read.s();
+            maxRadius = read.s();
+            intensity = read.f();
+            duration = read.f();
+        }
+
+        @Override
+        public void handleClient() {
+            earthquake.applyEarthquakeEffects(epicenterX, epicenterY, maxRadius, intensity, duration);
+        }
+    }
+}
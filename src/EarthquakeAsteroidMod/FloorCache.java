@@ -0,0 +1,89 @@
+package EarthquakeAsteroidMod;
+
+import arc.Events;
+import arc.math.geom.Vec3;
+import arc.struct.ObjectMap;
+import mindustry.Vars;
+import mindustry.game.EventType;
+import mindustry.maps.generators.PlanetGenerator;
+import mindustry.maps.planet.ErekirPlanetGenerator;
+import mindustry.maps.planet.SerpuloPlanetGenerator;
+import mindustry.maps.planet.TantrosPlanetGenerator;
+import mindustry.world.TileGen;
+
+/**
+ * Per-world, per-generator cache of the floors a planet generator would place on each tile.
+ * The generator only depends on the tile position and the map size, so every tile is generated
+ * at most once per world and later impacts on the same tiles are array lookups.
+ */
+public class FloorCache {
+    // Caches of the loaded world, dropped when another world loads
+    private static final ObjectMap<PlanetGenerator, FloorCache> caches = new ObjectMap<>();
+
+    public final int width, height;
+    private final PlanetGenerator generator;
+    // Floor id + 1 for every tile index, 0 if not generated yet
+    private final short[] floors;
+    // Reused for every generated tile
+    private final TileGen tileGen = new TileGen();
+    private final Vec3 pos = new Vec3();
+
+    private FloorCache(PlanetGenerator generator, int width, int height) {
+        this.generator = generator;
+        this.width = width;
+        this.height = height;
+        floors = new short[width * height];
+    }
+
+    /**
+     * Registers the listener that drops the caches of the previous world
+     */
+    public static void init() {
+        Events.on(EventType.WorldLoadEvent.class, e -> caches.clear());
+    }
+
+    /**
+     * @param generator - planet generator to cache
+     * @return the cache of that generator for the loaded world, created on first use
+     */
+    public static FloorCache of(PlanetGenerator generator) {
+        FloorCache cache = caches.get(generator);
+        if (cache == null || cache.width != Vars.world.width() || cache.height != Vars.world.height()) {
+            cache = new FloorCache(generator, Vars.world.width(), Vars.world.height());
+            caches.put(generator, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Main thread only: the planet generators write shared scratch vectors (Tmp)
+     * @param x - tile x position
+     * @param y - tile y position
+     * @return content id of the floor the generator places on that tile
+     */
+    public int floorId(int x, int y) {
+        int index = x + y * width;
+        int id = floors[index] - 1;
+
+        if (id < 0) {
+            id = generate(x, y);
+            floors[index] = (short) (id + 1);
+        }
+        return id;
+    }
+
+    private int generate(int x, int y) {
+        float fx = x / (float) width;
+        float fy = y / (float) height;
+
+        // Map to unit sphere
+        pos.set(fx * 2 - 1, 0, fy * 2 - 1).nor();
+        tileGen.reset();
+
+        if (generator instanceof ErekirPlanetGenerator e) e.genTile(pos, tileGen);
+        else if (generator instanceof SerpuloPlanetGenerator s) s.genTile(pos, tileGen);
+        else if (generator instanceof TantrosPlanetGenerator a) a.genTile(pos, tileGen);
+
+        return tileGen.floor.id;
+    }
+}
@@ -0,0 +1,168 @@
+package EarthquakeAsteroidMod;
+
+/**
+ * Fragments of asteroids that broke up on entry, as parallel primitive arrays like AsteroidPool.
+ * Each fragment is ballistic: it moves with its own velocity, falls under gravity from its height
+ * and impacts where it reaches the ground. Fragments close to each other in the air push apart,
+ * the close pairs are found through a SpatialHash rebuilt every frame so the cost stays linear.
+ */
+public class FragmentPool {
+    /** Distance in world units under which two fragments collide */
+    public static float collideDistance = 6f;
+    // Share of the overlap turned into separation speed on a collision
+    private static final float stiffness = 0.05f;
+
+    /** Number of live fragments */
+    public int size;
+    /** Collisions between fragments during the last collide call */
+    public int collisions;
+
+    // Ground position, height above the ground and velocity, in world units and ticks
+    float[] x, y, z, vx, vy, vz, gravity;
+    // Sprite scale and rotation in degrees
+    float[] scale, rotation;
+    // Impact radius in tiles
+    int[] radius;
+
+    /** Hash of the fragment positions, valid after collide until the next update */
+    public final SpatialHash hash = new SpatialHash(collideDistance * 2f);
+    private int current;
+    private final SpatialHash.Visitor pushApart = this::pushApart;
+
+    /** Called for every fragment reaching the ground, before it is removed */
+    public interface ImpactListener {
+        /**
+         * @param pool - pool of the fragment
+         * @param index - index of the fragment, only valid during the call
+         */
+        void impact(FragmentPool pool, int index);
+    }
+
+    /**
+     * @param capacity - initial number of fragments, grows when needed
+     */
+    public FragmentPool(int capacity) {
+        resize(Math.max(capacity, 1));
+    }
+
+    /**
+     * Adds a fragment
+     * @param x - world x position
+     * @param y - world y position
+     * @param z - height above the ground
+     * @param vx - x velocity, world units per tick
+     * @param vy - y velocity
+     * @param vz - vertical velocity, negative when falling
+     * @param gravity - downward acceleration per tick
+     * @param radius - impact radius in tiles
+     * @param scale - sprite scale
+     * @return index of the fragment, valid until the next removal
+     */
+    public int add(float x, float y, float z, float vx, float vy, float vz, float gravity, int radius, float scale) {
+        if (size == this.x.length) resize(size * 2);
+        int i = size++;
+
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.vz[i] = vz;
+        this.gravity[i] = gravity;
+        this.radius[i] = radius;
+        this.scale[i] = scale;
+        rotation[i] = (x * 13f + y * 7f) % 360f;
+        return i;
+    }
+
+    /**
+     * Moves every fragment, the ones reaching the ground are reported and removed
+     * @param delta - ticks since the last update
+     * @param listener - called for every impact, with the fragment at its impact position
+     */
+    public void update(float delta, ImpactListener listener) {
+        for (int i = 0; i < size; i++) {
+            vz[i] -= gravity[i] * delta;
+            x[i] += vx[i] * delta;
+            y[i] += vy[i] * delta;
+            z[i] += vz[i] * delta;
+            rotation[i] += 4f * delta;
+
+            if (z[i] <= 0f) {
+                z[i] = 0f;
+                listener.impact(this, i);
+                remove(i);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the hash and pushes apart the fragments that are too close
+     */
+    public void collide() {
+        collisions = 0;
+        hash.build(x, y, size);
+        for (current = 0; current < size; current++) {
+            hash.each(x[current], y[current], collideDistance, pushApart);
+        }
+    }
+
+    // Each pair is handled once, from its lower index
+    private void pushApart(int other) {
+        int i = current;
+        if (other <= i) return;
+
+        float dx = x[other] - x[i], dy = y[other] - y[i], dz = z[other] - z[i];
+        float d2 = dx * dx + dy * dy + dz * dz;
+        if (d2 >= collideDistance * collideDistance || d2 == 0f) return;
+
+        float d = (float) Math.sqrt(d2);
+        float push = (collideDistance - d) / d * stiffness * 0.5f;
+        vx[i] -= dx * push;
+        vy[i] -= dy * push;
+        vx[other] += dx * push;
+        vy[other] += dy * push;
+        collisions++;
+    }
+
+    /**
+     * Removes a fragment by moving the last one into its slot
+     * @param index - index of the fragment
+     */
+    public void remove(int index) {
+        int last = --size;
+        if (index == last) return;
+
+        x[index] = x[last];
+        y[index] = y[last];
+        z[index] = z[last];
+        vx[index] = vx[last];
+        vy[index] = vy[last];
+        vz[index] = vz[last];
+        gravity[index] = gravity[last];
+        scale[index] = scale[last];
+        rotation[index] = rotation[last];
+        radius[index] = radius[last];
+    }
+
+    /**
+     * Removes every fragment
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        x = PoolArrays.grow(x, size, capacity);
+        y = PoolArrays.grow(y, size, capacity);
+        z = PoolArrays.grow(z, size, capacity);
+        vx = PoolArrays.grow(vx, size, capacity);
+        vy = PoolArrays.grow(vy, size, capacity);
+        vz = PoolArrays.grow(vz, size, capacity);
+        gravity = PoolArrays.grow(gravity, size, capacity);
+        scale = PoolArrays.grow(scale, size, capacity);
+        rotation = PoolArrays.grow(rotation, size, capacity);
+        radius = PoolArrays.grow(radius, size, capacity);
+    }
+}
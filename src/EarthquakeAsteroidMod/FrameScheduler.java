@@ -0,0 +1,71 @@
+package EarthquakeAsteroidMod;
+
+import arc.Events;
+import arc.struct.Seq;
+import arc.util.Time;
+import mindustry.Vars;
+import mindustry.game.EventType;
+
+/**
+ * Runs long disaster work a slice at a time, within a time and tile budget per frame,
+ * so a big event is spread over several frames instead of causing one long one.
+ */
+public class FrameScheduler {
+    /** Time all tasks may use in one frame */
+    public static long frameBudgetNanos = 1_000_000L;
+    /** Tiles all tasks may edit in one frame */
+    public static int frameTileBudget = 96;
+
+    private static final Seq<Task> tasks = new Seq<>();
+
+    /** Work that is done over several frames */
+    public interface Task {
+        /**
+         * Does part of the work
+         * @param deadline - Time.nanos() value to stop at
+         * @param tileBudget - max tiles to edit in this step
+         * @return number of tiles edited, or -1 once the task is finished
+         */
+        int step(long deadline, int tileBudget);
+    }
+
+    /**
+     * Registers the listener that runs the tasks
+     */
+    public static void init() {
+        Events.on(EventType.WorldLoadEvent.class, e -> tasks.clear());
+
+        Events.run(EventType.Trigger.update, () -> {
+            // Keeps going if the player dies mid-event, only stops while paused or out of a game
+            if (tasks.isEmpty() || !Vars.state.isPlaying()) return;
+            run(Time.nanos() + frameBudgetNanos, frameTileBudget);
+        });
+    }
+
+    /**
+     * Adds a task, it starts on the next frame
+     * @param task - task to run
+     */
+    public static void add(Task task) {
+        tasks.add(task);
+    }
+
+    /**
+     * Runs every task once, sharing the budget, and drops the finished ones
+     * @param deadline - Time.nanos() value to stop at
+     * @param tileBudget - max tiles to edit in total
+     */
+    static void run(long deadline, int tileBudget) {
+        for (int i = 0; i < tasks.size; i++) {
+            // Every task gets at least one step per frame so none of them starve
+            int edited = tasks.get(i).step(deadline, Math.max(tileBudget, 1));
+
+            if (edited == -1) {
+                tasks.remove(i);
+                i--;
+            } else {
+                tileBudget -= edited;
+            }
+        }
+    }
+}
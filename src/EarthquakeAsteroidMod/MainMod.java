@@ -1,11 +1,18 @@
 package EarthquakeAsteroidMod;
 
 import arc.Events;
+import arc.util.CommandHandler;
+import arc.util.Log;
+import arc.util.Time;
 import mindustry.Vars;
 import mindustry.game.EventType;
+import mindustry.gen.Player;
 import mindustry.mod.Mod;
 
 public class MainMod extends Mod {
+    /** Fire times of every disaster type, register new ones here */
+    public static final DisasterScheduler scheduler = new DisasterScheduler();
+
     private AsteroidMod asteroid;
     private EarthquakeMod earthquake;
 
@@ -16,28 +23,119 @@ public class MainMod extends Mod {
      */
     @Override
     public void init() {
+        long start = Time.nanos();
+
+        // Fires the registered disasters when they are due
         Events.run(EventType.Trigger.update, () -> {
             if (!isRunning()) return;
+            scheduler.update(Time.delta);
         });
 
+        Telemetry.debug = Log.level == Log.LogLevel.debug;
+
+        DensityGrid.init();
+        TargetPlanner.init();
+        FrameScheduler.init();
+        DisasterEffects.init();
+        FloorCache.init();
+        CraterPlan.init();
+        TileSync.init();
+        RebuildLedger.init();
+
         asteroid = new AsteroidMod();
         earthquake = new EarthquakeMod();
 
         asteroid.init();
         earthquake.init();
+        DisasterSave.init(asteroid, earthquake);
+        EventSync.init(asteroid, earthquake);
+
+        // Startup cost of the mod, compare with the game's own load time to check the overhead
+        Log.info("[MAIN] Mod initialized in " + Time.timeSinceNanos(start) / 1000 + "us");
     }
 
     /**
-     * This function if the game is running (not just in the menu)
+     * Registers console commands on dedicated servers
+     * @param handler - server command handler
+     */
+    @Override
+    public void registerServerCommands(CommandHandler handler) {
+        handler.register("disasterlog", "Prints the recorded disaster events.", args -> Telemetry.dump());
+        handler.register("disastertimes", "[csv/reset] [file]", "Prints the time of every disaster phase (count, mean, p50, p99, max) and when each disaster fires next, exports it as CSV or clears it.",
+                args -> {
+                    PhaseTimes.command(args);
+                    if (args.length == 0) Log.info("[SCHEDULER] " + scheduler.summary());
+                });
+        handler.register("disasterrate", "<disaster> <hours>", "Sets the average hours between two events of a disaster (asteroid, shower, earthquake).", args -> {
+            float hours;
+            try {
+                hours = Float.parseFloat(args[1]);
+            } catch (NumberFormatException e) {
+                hours = -1f;
+            }
+            if (!(hours > 0f)) {
+                Log.err("[SCHEDULER] Not a number of hours: " + args[1]);
+                return;
+            }
+
+            if (scheduler.setMean(args[0], hours * DisasterScheduler.hour)) {
+                Log.info("[SCHEDULER] " + args[0] + " now fires every " + hours + "h on average, next in " + scheduler.ticksUntil(args[0]) / DisasterScheduler.hour + "h");
+            } else {
+                Log.err("[SCHEDULER] No disaster named " + args[0]);
+            }
+        });
+        handler.register("disasterseed", "[seed]", "Prints or sets (hex) the master seed of the disasters.", args -> {
+            if (args.length == 0) {
+                Log.info("[RNG] Master seed " + Long.toHexString(DisasterRandom.seed()));
+                return;
+            }
+            try {
+                DisasterRandom.setSeed(Long.parseUnsignedLong(args[0], 16));
+                // The next radii and fire times were drawn from the old seed
+                asteroid.reseed();
+                earthquake.reseed();
+                scheduler.reschedule();
+            } catch (NumberFormatException e) {
+                Log.err("[RNG] Not a hex seed: " + args[0]);
+            }
+        });
+    }
+
+    /**
+     * Registers chat commands for the players of a server
+     * @param handler - client command handler
+     */
+    @Override
+    public void registerClientCommands(CommandHandler handler) {
+        handler.<Player>register("disastertimes", "Shows the time of every disaster phase (admins only).", (args, player) -> {
+            if (!player.admin) {
+                player.sendMessage("[scarlet]Only admins can see the disaster times.");
+                return;
+            }
+            player.sendMessage(PhaseTimes.summary() + "\n" + scheduler.summary());
+        });
+    }
+
+    /**
+     * This function if the game is running (not just in the menu) and disasters can happen here.
+     * Disasters are decided by the server (or the single player game), clients only apply what it sends.
      * @return true if the game is running
      */
     public static boolean isRunning() {
         if (!Vars.state.isGame()) return false;
         if (Vars.state.isPaused()) return false;
         if (!Vars.state.isPlaying()) return false;
-        if (Vars.player == null) return false;
-        if (Vars.player.unit() == null) return false;
-        return true;
+        if (Vars.net.client()) return false;
+        // The local player in single player, any connected player on a server
+        return BlockLogic.targetPlayer() != null;
+    }
+
+    /**
+     * Clients show the disasters the server sends them (EventSync), without deciding anything
+     * @return true if this is a client of a running game
+     */
+    public static boolean isClient() {
+        return Vars.net.client() && Vars.state.isGame() && Vars.state.isPlaying();
     }
 
     /**
@@ -0,0 +1,120 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Rand;
+import arc.struct.IntSeq;
+
+import java.util.Arrays;
+
+/**
+ * Picks ore tiles from a list of eligible tiles collected beforehand, in a fixed worst-case cost.
+ * Vein starts are drawn with a partial Fisher-Yates shuffle of the list, and each following ore
+ * may grow from the previous one into a free neighbour, keeping its ore type, so deposits come in veins.
+ */
+public class OreSampler {
+    /** Chance for an ore to extend the previous vein instead of starting a new one */
+    public static float veinChance = 0.6f;
+
+    private static final byte free = 1, taken = 2;
+
+    private final IntSeq candidates = new IntSeq();
+    // State of every index of the area: 0 not eligible, free or taken
+    private byte[] state = new byte[0];
+    private int width, height;
+
+    /**
+     * Clears the sampler for a new area
+     * @param width - width of the area, indices are x + y * width
+     * @param height - height of the area
+     */
+    public void reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        candidates.clear();
+
+        int size = width * height;
+        if (state.length < size) state = new byte[size];
+        else Arrays.fill(state, 0, size, (byte) 0);
+    }
+
+    /**
+     * Adds an eligible tile
+     * @param index - index of the tile in the area
+     */
+    public void add(int index) {
+        if (state[index] != 0) return;
+        state[index] = free;
+        candidates.add(index);
+    }
+
+    /**
+     * @return number of eligible tiles
+     */
+    public int size() {
+        return candidates.size;
+    }
+
+    /**
+     * Picks ore tiles, at most one per eligible tile. Costs at most one pass over the candidates
+     * plus four neighbour checks per ore, whatever the area looks like.
+     * @param count - ores wanted
+     * @param oreTypes - number of ore types, ore indices are 0..oreTypes-1
+     * @param rand - random source
+     * @param outIndices - picked tile indices are added here
+     * @param outOres - ore index of each picked tile is added here
+     * @return number of ores picked, less than count if the area ran out of eligible tiles
+     */
+    public int pick(int count, int oreTypes, Rand rand, IntSeq outIndices, IntSeq outOres) {
+        int[] items = candidates.items;
+        int n = candidates.size, cursor = 0, picked = 0;
+        int last = -1, lastOre = 0;
+
+        while (picked < count) {
+            int next = -1, ore = lastOre;
+
+            // Grow the vein into a free neighbour, starting from a random direction
+            if (last != -1 && rand.nextFloat() < veinChance) {
+                int start = rand.nextInt(4);
+                for (int d = 0; d < 4 && next == -1; d++) next = freeNeighbour(last, (start + d) & 3);
+            }
+
+            // Start a new vein: partial Fisher-Yates, skipping tiles already taken by a vein
+            if (next == -1) {
+                while (cursor < n) {
+                    int j = cursor + rand.nextInt(n - cursor);
+                    int tmp = items[cursor];
+                    items[cursor] = items[j];
+                    items[j] = tmp;
+
+                    if (state[items[cursor++]] == free) {
+                        next = items[cursor - 1];
+                        break;
+                    }
+                }
+                if (next == -1) break;
+                ore = rand.nextInt(oreTypes);
+            }
+
+            state[next] = taken;
+            outIndices.add(next);
+            outOres.add(ore);
+            last = next;
+            lastOre = ore;
+            picked++;
+        }
+        return picked;
+    }
+
+    private int freeNeighbour(int index, int direction) {
+        int x = index % width, y = index / width;
+        switch (direction) {
+            case 0: x++; break;
+            case 1: y++; break;
+            case 2: x--; break;
+            default: y--; break;
+        }
+        if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+
+        int neighbour = x + y * width;
+        return state[neighbour] == free ? neighbour : -1;
+    }
+}
@@ -0,0 +1,178 @@
+package EarthquakeAsteroidMod;
+
+import arc.Core;
+import arc.files.Fi;
+import arc.util.Log;
+import mindustry.Vars;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms of every disaster phase, kept for the whole session.
+ * Each phase has fixed log-scaled buckets: one octave per power of two of nanoseconds, split in
+ * four sub-buckets, so a percentile is known within 25% from 1ns to hours. Recording is a few
+ * atomic adds on preallocated arrays, so it allocates nothing and works from the planner thread too.
+ */
+public class PhaseTimes {
+    /** Timed phases, grouped by event type */
+    public enum Phase {
+        quakeTarget, quakeCollect, quakeEffects, quakeWaveStep,
+        asteroidTarget, asteroidSpawn, showerSpawn, asteroidImpact, craterCompute, craterApply, fragmentUpdate,
+        syncEncode, syncApply, saveWrite, saveRead
+    }
+
+    private static final int subBuckets = 4, octaves = 48, buckets = octaves * subBuckets;
+    private static final Phase[] phases = Phase.values();
+
+    // Flat [phase * buckets + bucket] counts, and per phase count, total and max nanoseconds
+    private static final AtomicLongArray counts = new AtomicLongArray(phases.length * buckets);
+    private static final AtomicLongArray totals = new AtomicLongArray(phases.length * 3);
+
+    /**
+     * Records one run of a phase
+     * @param phase - timed phase
+     * @param nanos - nanoseconds it took
+     */
+    public static void record(Phase phase, long nanos) {
+        int p = phase.ordinal();
+        counts.incrementAndGet(p * buckets + bucket(nanos));
+        totals.incrementAndGet(p * 3);
+        totals.addAndGet(p * 3 + 1, nanos);
+
+        long max;
+        while (nanos > (max = totals.get(p * 3 + 2)) && !totals.compareAndSet(p * 3 + 2, max, nanos)) {
+            // Another thread raised the max, check again
+        }
+    }
+
+    /**
+     * @param phase - timed phase
+     * @return number of runs recorded
+     */
+    public static long count(Phase phase) {
+        return totals.get(phase.ordinal() * 3);
+    }
+
+    /**
+     * @param phase - timed phase
+     * @return slowest run recorded, in nanoseconds
+     */
+    public static long max(Phase phase) {
+        return totals.get(phase.ordinal() * 3 + 2);
+    }
+
+    /**
+     * @param phase - timed phase
+     * @return average run, in nanoseconds
+     */
+    public static long mean(Phase phase) {
+        long count = count(phase);
+        return count == 0 ? 0 : totals.get(phase.ordinal() * 3 + 1) / count;
+    }
+
+    /**
+     * @param phase - timed phase
+     * @param quantile - 0 to 1, 0.5 for the median
+     * @return upper bound of the bucket holding that quantile (never above the max), in nanoseconds
+     */
+    public static long percentile(Phase phase, double quantile) {
+        long count = count(phase);
+        if (count == 0) return 0;
+
+        long rank = Math.max((long) Math.ceil(quantile * count), 1);
+        int base = phase.ordinal() * buckets;
+        long seen = 0;
+        for (int b = 0; b < buckets; b++) {
+            seen += counts.get(base + b);
+            if (seen >= rank) return Math.min(upperBound(b), max(phase));
+        }
+        return max(phase);
+    }
+
+    /**
+     * Clears every histogram
+     */
+    public static void reset() {
+        for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+        for (int i = 0; i < totals.length(); i++) totals.set(i, 0);
+    }
+
+    /**
+     * Prints count, mean, p50, p99 and max of every phase that ran
+     */
+    public static void dump() {
+        for (String line : summary().split("\n")) Log.info("[TIMES] " + line);
+    }
+
+    /**
+     * @return one line per phase that ran: count, mean, p50, p99 and max in microseconds
+     */
+    public static String summary() {
+        StringBuilder out = new StringBuilder("phase: count mean p50 p99 max (us)");
+        for (Phase phase : phases) {
+            if (count(phase) == 0) continue;
+            out.append('\n').append(phase.name()).append(": ").append(count(phase)).append(' ').append(micros(mean(phase))).append(' ')
+                    .append(micros(percentile(phase, 0.5))).append(' ').append(micros(percentile(phase, 0.99))).append(' ')
+                    .append(micros(max(phase)));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends one line per phase to a CSV file, with the map and its size so runs can be compared
+     * @param file - file to append to, the header is written when it is new
+     */
+    public static void exportCsv(Fi file) {
+        StringBuilder out = new StringBuilder();
+        if (!file.exists()) out.append("time,map,width,height,phase,count,mean_ns,p50_ns,p99_ns,max_ns\n");
+
+        long time = System.currentTimeMillis();
+        String map = Vars.state.map == null ? "none" : Vars.state.map.name().replace(',', ' ');
+        for (Phase phase : phases) {
+            out.append(time).append(',').append(map).append(',')
+                    .append(Vars.world.width()).append(',').append(Vars.world.height()).append(',')
+                    .append(phase.name()).append(',').append(count(phase)).append(',').append(mean(phase)).append(',')
+                    .append(percentile(phase, 0.5)).append(',').append(percentile(phase, 0.99)).append(',')
+                    .append(max(phase)).append('\n');
+        }
+
+        file.writeString(out.toString(), true);
+        Log.info("[TIMES] Exported to " + file.absolutePath());
+    }
+
+    /**
+     * @return default CSV file, in the game's data folder
+     */
+    public static Fi defaultCsv() {
+        return Core.settings.getDataDirectory().child("disaster-times.csv");
+    }
+
+    /**
+     * Handles the disastertimes command
+     * @param args - nothing to print, "csv [file]" to export, "reset" to clear
+     */
+    public static void command(String[] args) {
+        if (args.length == 0) dump();
+        else if (args[0].equals("reset")) reset();
+        else if (args[0].equals("csv")) exportCsv(args.length > 1 ? Core.files.absolute(args[1]) : defaultCsv());
+        else Log.err("[TIMES] Usage: disastertimes [csv [file]|reset]");
+    }
+
+    // Octave of the highest bit, then the two bits below it
+    static int bucket(long nanos) {
+        if (nanos < subBuckets) return (int) Math.max(nanos, 0);
+        int octave = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (octave - 2)) & (subBuckets - 1);
+        return Math.min((octave - 1) * subBuckets + sub, buckets - 1);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < subBuckets) return bucket;
+        int octave = bucket / subBuckets + 1, sub = bucket % subBuckets;
+        return ((long) (subBuckets + sub + 1) << (octave - 2)) - 1;
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000);
+    }
+}
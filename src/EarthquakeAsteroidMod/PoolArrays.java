@@ -0,0 +1,42 @@
+package EarthquakeAsteroidMod;
+
+/**
+ * Grows the parallel arrays of the pools (AsteroidPool, FragmentPool), keeping their live entries
+ */
+class PoolArrays {
+    /**
+     * @param array - array to grow, null before the first resize
+     * @param size - live entries to keep
+     * @param capacity - new length
+     * @return a new array holding the first size entries
+     */
+    static float[] grow(float[] array, int size, int capacity) {
+        float[] result = new float[capacity];
+        if (array != null) System.arraycopy(array, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * @param array - array to grow, null before the first resize
+     * @param size - live entries to keep
+     * @param capacity - new length
+     * @return a new array holding the first size entries
+     */
+    static int[] grow(int[] array, int size, int capacity) {
+        int[] result = new int[capacity];
+        if (array != null) System.arraycopy(array, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * @param array - array to grow, null before the first resize
+     * @param size - live entries to keep
+     * @param capacity - new length
+     * @return a new array holding the first size entries
+     */
+    static long[] grow(long[] array, int size, int capacity) {
+        long[] result = new long[capacity];
+        if (array != null) System.arraycopy(array, 0, result, 0, size);
+        return result;
+    }
+}
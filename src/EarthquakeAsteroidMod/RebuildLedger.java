@@ -0,0 +1,212 @@
+package EarthquakeAsteroidMod;
+
+import arc.Events;
+import arc.math.geom.Point2;
+import arc.struct.IntSet;
+import arc.struct.Queue;
+import arc.util.Time;
+import mindustry.Vars;
+import mindustry.ctype.ContentType;
+import mindustry.ctype.MappableContent;
+import mindustry.game.EventType;
+import mindustry.game.Team;
+import mindustry.game.Teams.BlockPlan;
+import mindustry.gen.Building;
+import mindustry.world.Block;
+import mindustry.world.Tile;
+import mindustry.world.meta.BlockGroup;
+
+import java.util.Arrays;
+
+/**
+ * Blocks destroyed by disasters, waiting to be handed to their team's rebuild queue.
+ * Each entry is a few primitives (packed position, block id, rotation, team and config) in a
+ * preallocated ring buffer, so memory stays fixed: when the ledger is full the oldest entry is dropped.
+ * Link lists (power nodes, bridges) are kept as the Point2[] the building returns, other configs fall
+ * back to the last config of the block, as when a player places it.
+ * About once a second the entries are merged into team.data().plans, in front of the plans already
+ * there: power first, then defense, then the rest, each group in the order the blocks were destroyed.
+ */
+public class RebuildLedger {
+    /** Number of entries kept, older ones are evicted */
+    public static final int capacity = 2048;
+    /** Ticks between two merges */
+    public static float mergeInterval = 60f;
+
+    // Config kinds, content configs store configContent + the content type ordinal
+    private static final byte configNone = 0, configInt = 1, configBool = 2, configPoint = 3, configLinks = 4, configLast = 5,
+            configContent = 6;
+    private static final int priorities = 3;
+    private static final ContentType[] contentTypes = ContentType.all;
+
+    private static final int[] positions = new int[capacity], configs = new int[capacity];
+    private static final short[] blocks = new short[capacity];
+    private static final byte[] rotations = new byte[capacity], teams = new byte[capacity], configTypes = new byte[capacity];
+    private static final Point2[][] links = new Point2[capacity][];
+    // Entries written in total, and the first one not merged yet
+    private static long written, merged;
+    private static int evicted;
+    private static float timer;
+
+    // Reused by every merge
+    private static final IntSet mergedPositions = new IntSet();
+    private static final boolean[] mergedTeams = new boolean[256];
+
+    /**
+     * Registers the listeners that clear the ledger and merge it
+     */
+    public static void init() {
+        Events.on(EventType.WorldLoadEvent.class, e -> clear());
+
+        Events.run(EventType.Trigger.update, () -> {
+            if (written == merged || !Vars.state.isPlaying()) return;
+            timer += Time.delta;
+            if (timer < mergeInterval) return;
+            timer = 0f;
+            merge();
+        });
+    }
+
+    /**
+     * Records a building about to be destroyed, if its team would rebuild it.
+     * Same conditions as the game's own rebuild plans (Building.addPlan).
+     * @param build - building, still valid
+     */
+    public static void record(Building build) {
+        Block block = build.block;
+        if (!Vars.state.rules.ghostBlocks || !block.rebuildable || build.team == Team.derelict) return;
+        if (build.team == Vars.state.rules.defaultTeam && Vars.state.isCampaign() && !block.isVisible()) return;
+
+        // Full: the oldest entry is dropped
+        if (written - merged == capacity) {
+            merged++;
+            evicted++;
+        }
+
+        int i = (int) (written % capacity);
+        positions[i] = build.tile.pos();
+        blocks[i] = block.id;
+        rotations[i] = (byte) build.rotation;
+        teams[i] = (byte) build.team.id;
+
+        Object config = build.config();
+        byte type = configNone;
+        int value = 0;
+        links[i] = null;
+        if (config instanceof Integer) {
+            type = configInt;
+            value = (Integer) config;
+        } else if (config instanceof Boolean) {
+            type = configBool;
+            value = (Boolean) config ? 1 : 0;
+        } else if (config instanceof Point2) {
+            type = configPoint;
+            value = ((Point2) config).pack();
+        } else if (config instanceof Point2[]) {
+            // A copy made by the building, kept as it is
+            type = configLinks;
+            links[i] = (Point2[]) config;
+        } else if (config instanceof MappableContent) {
+            type = (byte) (configContent + ((MappableContent) config).getContentType().ordinal());
+            value = ((MappableContent) config).id;
+        } else if (config != null) {
+            type = configLast;
+        }
+        configTypes[i] = type;
+        configs[i] = value;
+        written++;
+    }
+
+    /**
+     * @return number of entries waiting to be merged
+     */
+    public static int size() {
+        return (int) (written - merged);
+    }
+
+    /**
+     * Drops every entry
+     */
+    public static void clear() {
+        Arrays.fill(links, null);
+        written = merged = 0;
+        evicted = 0;
+        timer = 0f;
+    }
+
+    /**
+     * Moves every entry to the rebuild plans of its team, replacing plans already queued for the same tile
+     */
+    public static void merge() {
+        long start = Time.nanos();
+        int size = size();
+        if (size == 0) return;
+
+        mergedPositions.clear();
+        for (long n = merged; n < written; n++) {
+            int i = (int) (n % capacity);
+            mergedPositions.add(positions[i]);
+            mergedTeams[teams[i] & 0xff] = true;
+        }
+
+        // The game queues its own plan for some destroyed blocks, ours takes its place
+        for (int t = 0; t < mergedTeams.length; t++) {
+            if (!mergedTeams[t]) continue;
+            mergedTeams[t] = false;
+
+            Queue<BlockPlan> plans = Team.get(t).data().plans;
+            for (int p = plans.size - 1; p >= 0; p--) {
+                BlockPlan plan = plans.get(p);
+                if (mergedPositions.contains(Point2.pack(plan.x, plan.y))) plans.removeIndex(p);
+            }
+        }
+
+        // Plans are added to the front, so the last group and the newest entry go first
+        int queued = 0;
+        for (int priority = priorities - 1; priority >= 0; priority--) {
+            for (long n = written - 1; n >= merged; n--) {
+                int i = (int) (n % capacity);
+                Block block = Vars.content.block(blocks[i]);
+                if (priority(block) != priority) continue;
+
+                // Already rebuilt, by hand or by the game
+                Tile tile = Vars.world.tile(positions[i]);
+                if (tile == null || tile.block() == block) continue;
+
+                Team.get(teams[i] & 0xff).data().plans.addFirst(new BlockPlan(Point2.x(positions[i]), Point2.y(positions[i]),
+                        rotations[i], block.id, config(i)));
+                queued++;
+            }
+        }
+
+        // The plans hold the link lists now
+        for (long n = merged; n < written; n++) links[(int) (n % capacity)] = null;
+
+        Telemetry.record(Telemetry.Kind.rebuildQueued, 0, 0, 0, queued, evicted, Time.timeSinceNanos(start));
+        merged = written;
+        evicted = 0;
+    }
+
+    /**
+     * @param block - destroyed block
+     * @return 0 for power, 1 for defense, 2 for everything else
+     */
+    static int priority(Block block) {
+        if (block.group == BlockGroup.power) return 0;
+        if (block.group == BlockGroup.turrets || block.group == BlockGroup.walls || block.group == BlockGroup.projectors) return 1;
+        return priorities - 1;
+    }
+
+    private static Object config(int i) {
+        int value = configs[i];
+        switch (configTypes[i]) {
+            case configNone: return null;
+            case configInt: return value;
+            case configBool: return value != 0;
+            case configPoint: return Point2.unpack(value);
+            case configLinks: return links[i];
+            case configLast: return Vars.content.block(blocks[i]).lastConfig;
+            default: return Vars.content.getByID(contentTypes[configTypes[i] - configContent], value);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package EarthquakeAsteroidMod;
+
+import arc.func.Boolf;
+import arc.struct.IntSeq;
+import arc.struct.IntSet;
+import arc.struct.Seq;
+import mindustry.Vars;
+import mindustry.world.Tile;
+
+/**
+ * Collects the tiles or buildings affected by an event in a disk.
+ * Keeps packed positions (Point2.pack) in primitive arrays and dedupes multiblocks with an int set,
+ * all reused between calls so collecting a region doesn't allocate once the arrays have grown.
+ */
+public class RegionCollector implements DiskStencil.Visitor {
+    /** Packed positions collected by the last call */
+    public final IntSeq positions = new IntSeq();
+
+    // Packed positions of the multiblocks already collected
+    private final IntSet seenBuildings = new IntSet();
+    private final Seq<Tile> linked = new Seq<>();
+    private Boolf<Tile> filter;
+    private boolean linkedTiles;
+
+    /**
+     * Collects the tiles of a disk that pass a filter. A multiblock is only collected once,
+     * either as its center tile or as every tile it covers (even outside the disk).
+     * @param centerX - tile x position of the center
+     * @param centerY - tile y position of the center
+     * @param radius - radius of the disk
+     * @param filter - tiles to collect, also applied to the linked tiles of multiblocks
+     * @param linkedTiles - true to collect every tile of a multiblock, false to collect its center tile
+     * @return this collector
+     */
+    public RegionCollector collect(int centerX, int centerY, int radius, Boolf<Tile> filter, boolean linkedTiles) {
+        clear();
+        this.filter = filter;
+        this.linkedTiles = linkedTiles;
+
+        DiskStencil.each(centerX, centerY, radius, this);
+
+        this.filter = null;
+        linked.clear();
+        return this;
+    }
+
+    @Override
+    public void visit(Tile tile, int pos, int dst2) {
+        if (!filter.get(tile)) return;
+
+        if (tile.build != null && tile.build.block.size > 1) {
+            if (!markBuilding(tile.build.tile.pos())) return;
+
+            if (linkedTiles) {
+                tile.build.tile.getLinkedTiles(linked);
+                for (int i = 0; i < linked.size; i++) {
+                    Tile other = linked.get(i);
+                    if (filter.get(other)) positions.add(other.pos());
+                }
+            } else {
+                positions.add(tile.build.tile.pos());
+            }
+        } else {
+            positions.add(pos);
+        }
+    }
+
+    /**
+     * Marks a multiblock as collected
+     * @param pos - packed position of the multiblock center
+     * @return true the first time a multiblock is marked since the last clear
+     */
+    public boolean markBuilding(int pos) {
+        return seenBuildings.add(pos);
+    }
+
+    /**
+     * Empties the collector, keeping its arrays
+     */
+    public void clear() {
+        positions.clear();
+        seenBuildings.clear();
+    }
+
+    /**
+     * @return number of collected positions
+     */
+    public int size() {
+        return positions.size;
+    }
+
+    /**
+     * @param index - index of the collected position
+     * @return the tile at that position
+     */
+    public Tile tile(int index) {
+        return Vars.world.tile(positions.items[index]);
+    }
+}
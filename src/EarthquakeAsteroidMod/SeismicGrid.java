@@ -0,0 +1,171 @@
+package EarthquakeAsteroidMod;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Damped 2D wave equation on a square float grid centered on an epicenter, one cell per tile.
+ * Leapfrog scheme: next = (2 - d) * cur - (1 - d) * prev + c2 * laplacian(cur), with a Courant number
+ * of 0.5 (c2 = 0.25, well within the stability limit of the 9 point laplacian). The outer cells are damped harder so the edges absorb the wave
+ * instead of reflecting it back. The peak ground acceleration of every cell is kept for the damage.
+ * Big grids are split in row strips solved in parallel, small ones are solved on the calling thread.
+ */
+public class SeismicGrid {
+    /** Squared Courant number */
+    public static final float courant2 = 0.25f;
+    /** Cells the front travels per step (the Courant number) */
+    public static final float speed = 0.5f;
+    /** Cells of absorbing border around the affected disk */
+    public static final int sponge = 8;
+    /** Damping per step inside the disk */
+    public static float damping = 0.004f;
+    /** Grids with fewer cells are solved on the calling thread, splitting them costs more than it saves */
+    public static int parallelCells = 160 * 160;
+
+    private static ExecutorService pool;
+    private static final int threads = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+
+    /** Cells per side, and tile position of cell (0, 0) */
+    public final int size, originX, originY;
+    private float[] prev, cur, next;
+    private final float[] damp, peak;
+    private final Runnable[] strips;
+    private volatile CountDownLatch latch;
+    private int steps;
+
+    /**
+     * @param centerX - tile x position of the epicenter
+     * @param centerY - tile y position of the epicenter
+     * @param radius - radius of the affected disk, in tiles
+     * @param amplitude - height of the initial pulse
+     */
+    public SeismicGrid(int centerX, int centerY, int radius, float amplitude) {
+        int half = radius + sponge;
+        size = half * 2 + 1;
+        originX = centerX - half;
+        originY = centerY - half;
+
+        int cells = size * size;
+        prev = new float[cells];
+        cur = new float[cells];
+        next = new float[cells];
+        damp = new float[cells];
+        peak = new float[cells];
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int i = x + y * size;
+                // Distance to the closest edge, the damping ramps up over the sponge cells
+                int edge = Math.min(Math.min(x, y), Math.min(size - 1 - x, size - 1 - y));
+                float ramp = edge >= sponge ? 0f : (sponge - edge) / (float) sponge;
+                damp[i] = damping + 0.3f * ramp * ramp;
+
+                // Gaussian pulse at the epicenter, at rest (same height in both time levels)
+                int dx = x - half, dy = y - half;
+                float h = amplitude * (float) Math.exp(-(dx * dx + dy * dy) / 4.5);
+                cur[i] = h;
+                prev[i] = h;
+            }
+        }
+
+        // Strip bounds are fixed, the calling thread solves the last one
+        int count = cells >= parallelCells ? Math.min(threads + 1, size) : 1;
+        strips = new Runnable[count - 1];
+        for (int s = 0; s < count - 1; s++) {
+            int from = size * s / count, to = size * (s + 1) / count;
+            strips[s] = () -> {
+                try {
+                    solveRows(from, to);
+                } finally {
+                    latch.countDown();
+                }
+            };
+        }
+    }
+
+    /**
+     * @param radius - distance in tiles
+     * @return steps for the front to travel that far, plus the time for the peak behind it to pass
+     */
+    public static int stepsToReach(int radius) {
+        return (int) Math.ceil(radius / speed * 1.2f) + 6;
+    }
+
+    /**
+     * Advances the wave by one step
+     */
+    public void step() {
+        if (strips.length == 0) {
+            solveRows(0, size);
+        } else {
+            latch = new CountDownLatch(strips.length);
+            ExecutorService pool = pool();
+            for (Runnable strip : strips) pool.execute(strip);
+            solveRows(size * strips.length / (strips.length + 1), size);
+
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        float[] old = prev;
+        prev = cur;
+        cur = next;
+        next = old;
+        steps++;
+    }
+
+    /**
+     * @return steps done so far
+     */
+    public int steps() {
+        return steps;
+    }
+
+    /**
+     * @param tileX - tile x position
+     * @param tileY - tile y position
+     * @return highest ground acceleration seen at that tile so far, 0 outside the grid
+     */
+    public float peakAt(int tileX, int tileY) {
+        int x = tileX - originX, y = tileY - originY;
+        if (x < 0 || y < 0 || x >= size || y >= size) return 0f;
+        return peak[x + y * size];
+    }
+
+    // Border rows and columns stay at 0 (fixed edge behind the sponge)
+    private void solveRows(int from, int to) {
+        float[] prev = this.prev, cur = this.cur, next = this.next, damp = this.damp, peak = this.peak;
+        int size = this.size;
+
+        for (int y = Math.max(from, 1); y < Math.min(to, size - 1); y++) {
+            int row = y * size;
+            for (int i = row + 1; i < row + size - 1; i++) {
+                float c = cur[i], p = prev[i], d = damp[i];
+                // 9 point stencil, the front stays round where the 5 point one runs ahead on the diagonals
+                float laplacian = (4f * (cur[i - 1] + cur[i + 1] + cur[i - size] + cur[i + size])
+                        + cur[i - size - 1] + cur[i - size + 1] + cur[i + size - 1] + cur[i + size + 1] - 20f * c) / 6f;
+                float n = (2f - d) * c - (1f - d) * p + courant2 * laplacian;
+                next[i] = n;
+
+                // Second time derivative, the time step is 1
+                float acceleration = Math.abs(n - 2f * c + p);
+                if (acceleration > peak[i]) peak[i] = acceleration;
+            }
+        }
+    }
+
+    private static synchronized ExecutorService pool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "disaster-seismic");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+}
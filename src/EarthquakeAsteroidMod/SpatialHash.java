@@ -0,0 +1,89 @@
+package EarthquakeAsteroidMod;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid of points hashed into a table, rebuilt from scratch every frame.
+ * Building is one pass over the points (each one is pushed on the linked list of its bucket),
+ * a query only looks at the cells it overlaps, so finding the neighbours of n points costs O(n)
+ * instead of the O(n^2) of comparing every pair. The arrays grow with the point count and are kept.
+ */
+public class SpatialHash {
+    /** Callback for every point in the queried cells */
+    public interface Visitor {
+        /**
+         * @param index - index of the point, as given to build
+         */
+        void visit(int index);
+    }
+
+    private final float cellSize;
+    // First point of each bucket, -1 if empty, then the next point of the same bucket
+    private int[] head = new int[16], next = new int[16];
+    // Cell of each point, buckets can hold points of several cells
+    private int[] cellX = new int[16], cellY = new int[16];
+    private int mask = 15;
+
+    /**
+     * @param cellSize - side of a cell in world units, about the largest query radius
+     */
+    public SpatialHash(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Hashes every point
+     * @param xs - x positions
+     * @param ys - y positions
+     * @param count - number of points, indices 0 to count - 1
+     */
+    public void build(float[] xs, float[] ys, int count) {
+        if (next.length < count) {
+            next = new int[count * 2];
+            cellX = new int[count * 2];
+            cellY = new int[count * 2];
+        }
+        // Twice as many buckets as points keeps the lists short
+        int buckets = Integer.highestOneBit(Math.max(count * 2, 16) - 1) << 1;
+        if (head.length != buckets) head = new int[buckets];
+        mask = buckets - 1;
+        Arrays.fill(head, -1);
+
+        for (int i = 0; i < count; i++) {
+            int cx = cell(xs[i]), cy = cell(ys[i]);
+            int bucket = hash(cx, cy);
+            cellX[i] = cx;
+            cellY[i] = cy;
+            next[i] = head[bucket];
+            head[bucket] = i;
+        }
+    }
+
+    /**
+     * Visits every point in the cells overlapping a square, the caller checks the exact distance
+     * @param x - x position of the center
+     * @param y - y position of the center
+     * @param radius - half side of the square
+     * @param visitor - called once per point
+     */
+    public void each(float x, float y, float radius, Visitor visitor) {
+        int x1 = cell(x - radius), x2 = cell(x + radius);
+        int y1 = cell(y - radius), y2 = cell(y + radius);
+
+        for (int cy = y1; cy <= y2; cy++) {
+            for (int cx = x1; cx <= x2; cx++) {
+                for (int i = head[hash(cx, cy)]; i != -1; i = next[i]) {
+                    if (cellX[i] == cx && cellY[i] == cy) visitor.visit(i);
+                }
+            }
+        }
+    }
+
+    private int cell(float position) {
+        return (int) Math.floor(position / cellSize);
+    }
+
+    private int hash(int cx, int cy) {
+        return (cx * 73856093 ^ cy * 19349663) & mask;
+    }
+}
@@ -0,0 +1,178 @@
+package EarthquakeAsteroidMod;
+
+import arc.Events;
+import arc.math.Rand;
+import arc.math.geom.Point2;
+import arc.struct.Seq;
+import arc.util.Log;
+import arc.util.Time;
+import mindustry.Vars;
+import mindustry.core.World;
+import mindustry.game.EventType;
+import mindustry.gen.Player;
+import mindustry.world.Tile;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Searches for the next target of an event ahead of time, on a background thread.
+ * Every few seconds the main thread copies the area around a player and the worker searches that copy,
+ * so when the event fires it only has to check the ready target is still worth hitting.
+ */
+public class TargetPlanner {
+    // Ticks between two snapshots (3 seconds)
+    private static final float refreshInterval = 180f;
+    private static final Seq<TargetPlanner> planners = new Seq<>();
+    private static ExecutorService executor;
+    private static float refreshTimer;
+
+    private final String name;
+    private final int maxRange;
+    // One seed per search, drawn on the main thread
+    private final DisasterRandom.Channel seeds;
+    private final AtomicReference<Plan> ready = new AtomicReference<>();
+    private final AtomicBoolean searching = new AtomicBoolean();
+    private volatile int radius;
+
+    // Target found by the worker
+    private static class Plan {
+        final DensityGrid grid;
+        final int pos, radius, count;
+
+        Plan(DensityGrid grid, int pos, int radius, int count) {
+            this.grid = grid;
+            this.pos = pos;
+            this.radius = radius;
+            this.count = count;
+        }
+    }
+
+    /**
+     * @param name - event name, for logging
+     * @param maxRange - max range to check around player
+     * @param radius - radius of the next event
+     */
+    public TargetPlanner(String name, int maxRange, int radius) {
+        this.name = name;
+        this.maxRange = maxRange;
+        this.radius = radius;
+        seeds = DisasterRandom.channel("planner-" + name);
+        planners.add(this);
+    }
+
+    /**
+     * Registers the listener that refreshes every planner
+     */
+    public static void init() {
+        Events.on(EventType.WorldLoadEvent.class, e -> {
+            for (TargetPlanner planner : planners) planner.ready.set(null);
+            refreshTimer = refreshInterval;
+        });
+
+        Events.run(EventType.Trigger.update, () -> {
+            if (!MainMod.isRunning()) return;
+
+            refreshTimer += Time.delta;
+            if (refreshTimer < refreshInterval) return;
+            refreshTimer = 0f;
+
+            for (TargetPlanner planner : planners) planner.refresh();
+        });
+    }
+
+    /**
+     * Changes the radius of the next event, drops the target found for the old one
+     * @param radius - radius of the next event
+     */
+    public void setRadius(int radius) {
+        this.radius = radius;
+        ready.set(null);
+    }
+
+    /**
+     * Copies the area around the player and hands it to the worker, unless it is still busy
+     */
+    private void refresh() {
+        DensityGrid grid = DensityGrid.current();
+        if (grid == null) return;
+        // The seed is only drawn for searches that run, so the n-th search always gets the n-th seed
+        if (!searching.compareAndSet(false, true)) return;
+
+        long seed = seeds.next();
+        Player player = BlockLogic.randomTargetPlayer(DisasterRandom.stream(seed, DisasterRandom.target));
+        if (player == null) {
+            searching.set(false);
+            return;
+        }
+
+        int searchRadius = radius;
+        int playerX = World.toTile(player.unit().x);
+        int playerY = World.toTile(player.unit().y);
+        TargetSearch.Snapshot snapshot = TargetSearch.Snapshot.capture(grid, playerX, playerY, maxRange + searchRadius);
+        BlockLogic.SearchMode mode = BlockLogic.searchMode;
+        // The worker gets its own stream, the result only depends on the seed and the snapshot
+        Rand rand = DisasterRandom.stream(seed, DisasterRandom.shape);
+
+        executor().execute(() -> {
+            try {
+                int pos = mode == BlockLogic.SearchMode.exhaustive ?
+                        TargetSearch.exhaustive(snapshot, playerX, playerY, searchRadius, maxRange) :
+                        TargetSearch.sample(snapshot, playerX, playerY, searchRadius, maxRange, BlockLogic.searchAttempts, rand);
+
+                ready.set(pos == -1 ? null :
+                        new Plan(grid, pos, searchRadius, snapshot.countDisk(Point2.x(pos), Point2.y(pos), searchRadius)));
+            } catch (Throwable t) {
+                Log.err("[PLANNER] " + name + " search failed: " + t);
+            } finally {
+                searching.set(false);
+            }
+        });
+    }
+
+    /**
+     * Takes the target found in the background, if it is still good
+     * @param radius - radius of the event that is firing
+     * @return the target tile, null if there is none or it went stale (search synchronously then)
+     */
+    public Tile take(int radius) {
+        Plan plan = ready.getAndSet(null);
+        if (plan == null || plan.radius != radius) return null;
+
+        // World was reloaded since the snapshot
+        DensityGrid grid = DensityGrid.current();
+        if (grid != plan.grid) return null;
+
+        int x = Point2.x(plan.pos), y = Point2.y(plan.pos);
+        Tile tile = Vars.world.tile(x, y);
+        if (!BlockLogic.isTileValid(tile, radius)) return null;
+
+        // Buildings were removed since the snapshot
+        int count = grid.countDisk(x, y, radius);
+        if (count == 0 || count * 2 < plan.count) {
+            Telemetry.record(Telemetry.Kind.targetStale, x, y, radius, count, plan.count, 0L);
+            return null;
+        }
+
+        // Every player moved away since the snapshot
+        if (!BlockLogic.isNearPlayer(x, y, maxRange)) return null;
+
+        return tile;
+    }
+
+    /**
+     * @return the background thread shared by the disaster planners
+     */
+    static ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "disaster-planner");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
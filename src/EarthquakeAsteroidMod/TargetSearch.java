@@ -0,0 +1,218 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.Mathf;
+import arc.math.Rand;
+import arc.math.geom.Point2;
+import mindustry.Vars;
+import mindustry.world.Tile;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Target searches over a read-only snapshot of the area around the player.
+ * Either samples random tiles (the original behaviour) or checks every tile in range.
+ */
+public class TargetSearch {
+    // Rows each fork-join task scores before it stops splitting
+    private static final int stripRows = 8;
+    private static ForkJoinPool pool;
+
+    /**
+     * Read-only copy of the breakable builds and valid floors around a point.
+     * Captured on the main thread, safe to search from any thread afterwards.
+     */
+    public static class Snapshot {
+        final int originX, originY;
+        final int width, height;
+        final int worldWidth, worldHeight;
+        final DensityGrid grid;
+        // 1 if the floor of the tile can hold an impact (has surface, not dark)
+        final byte[] valid;
+
+        Snapshot(int originX, int originY, int worldWidth, int worldHeight, DensityGrid grid, byte[] valid) {
+            this.originX = originX;
+            this.originY = originY;
+            this.width = grid.width;
+            this.height = grid.height;
+            this.worldWidth = worldWidth;
+            this.worldHeight = worldHeight;
+            this.grid = grid;
+            this.valid = valid;
+        }
+
+        /**
+         * Copies every tile within a square around a point
+         * @param grid - density grid of the loaded world
+         * @param centerX - tile x position of the center
+         * @param centerY - tile y position of the center
+         * @param extent - half size of the square, should cover the search range plus the radius
+         * @return the snapshot
+         */
+        public static Snapshot capture(DensityGrid grid, int centerX, int centerY, int extent) {
+            int x1 = Mathf.clamp(centerX - extent, 0, grid.width - 1), x2 = Mathf.clamp(centerX + extent, 0, grid.width - 1);
+            int y1 = Mathf.clamp(centerY - extent, 0, grid.height - 1), y2 = Mathf.clamp(centerY + extent, 0, grid.height - 1);
+            int w = x2 - x1 + 1, h = y2 - y1 + 1;
+
+            byte[] valid = new byte[w * h];
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    Tile tile = Vars.world.tiles.get(x1 + x, y1 + y);
+                    if (tile.floor() != null && tile.floor().hasSurface() && tile.data <= 0) valid[x + y * w] = 1;
+                }
+            }
+
+            return new Snapshot(x1, y1, grid.width, grid.height, grid.region(x1, y1, w, h), valid);
+        }
+
+        /**
+         * Same checks as BlockLogic.isTileValid, on the copied data
+         * @param x - tile x position
+         * @param y - tile y position
+         * @param radius - radius of the event
+         * @return true if the tile can be a target
+         */
+        boolean isValid(int x, int y, int radius) {
+            int buffer = radius + 5;
+            if (x < buffer || x >= worldWidth - buffer || y < buffer || y >= worldHeight - buffer) return false;
+
+            int lx = x - originX, ly = y - originY;
+            if (lx < 0 || lx >= width || ly < 0 || ly >= height) return false;
+            return valid[lx + ly * width] != 0;
+        }
+
+        /**
+         * @param x - tile x position of the center
+         * @param y - tile y position of the center
+         * @param radius - radius of the disk
+         * @return number of breakable builds in the disk
+         */
+        int countDisk(int x, int y, int radius) {
+            return grid.countDisk(x - originX, y - originY, radius);
+        }
+    }
+
+    /**
+     * Tests random tiles around the player and keeps the one with the most breakable builds
+     * @param snapshot - area around the player
+     * @param playerX - player tile x position
+     * @param playerY - player tile y position
+     * @param radius - radius of the event
+     * @param maxRange - max range to check around player
+     * @param attempts - number of tiles to test
+     * @param rand - random source
+     * @return packed position of the best tile, -1 if no tile has breakable builds
+     */
+    public static int sample(Snapshot snapshot, int playerX, int playerY, int radius, int maxRange, int attempts, Rand rand) {
+        int buffer = radius + 5;
+        int best = -1, mostBreakable = 0;
+
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            int testX = Mathf.clamp(playerX + rand.random(-maxRange, maxRange), buffer, snapshot.worldWidth - buffer);
+            int testY = Mathf.clamp(playerY + rand.random(-maxRange, maxRange), buffer, snapshot.worldHeight - buffer);
+
+            if (!snapshot.isValid(testX, testY, radius)) continue;
+
+            int count = snapshot.countDisk(testX, testY, radius);
+            if (count > mostBreakable) {
+                mostBreakable = count;
+                best = Point2.pack(testX, testY);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Scores every valid tile around the player and returns the true maximum.
+     * Ties go to the tile closest to the player, then the lowest y, then the lowest x,
+     * so the same snapshot always gives the same answer.
+     * @param snapshot - area around the player
+     * @param playerX - player tile x position
+     * @param playerY - player tile y position
+     * @param radius - radius of the event
+     * @param maxRange - max range to check around player
+     * @return packed position of the best tile, -1 if no tile has breakable builds
+     */
+    public static int exhaustive(Snapshot snapshot, int playerX, int playerY, int radius, int maxRange) {
+        int buffer = radius + 5;
+        int minX = Math.max(playerX - maxRange, buffer), maxX = Math.min(playerX + maxRange, snapshot.worldWidth - buffer - 1);
+        int minY = Math.max(playerY - maxRange, buffer), maxY = Math.min(playerY + maxRange, snapshot.worldHeight - buffer - 1);
+        if (minX > maxX || minY > maxY) return -1;
+
+        Candidate best = pool().invoke(new StripTask(snapshot, playerX, playerY, radius, minX, maxX, minY, maxY));
+        return best.count > 0 ? Point2.pack(best.x, best.y) : -1;
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if (pool == null) pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+        return pool;
+    }
+
+    // Best tile found by a strip
+    private static class Candidate {
+        int x, y, count, dst2;
+
+        /**
+         * @param other - candidate to compare to, may be null
+         * @return true if this candidate should win over the other one
+         */
+        boolean beats(Candidate other) {
+            if (other == null) return true;
+            if (count != other.count) return count > other.count;
+            if (dst2 != other.dst2) return dst2 < other.dst2;
+            if (y != other.y) return y < other.y;
+            return x < other.x;
+        }
+    }
+
+    // Scores a range of rows, splitting in half until the strips are small enough
+    private static class StripTask extends RecursiveTask<Candidate> {
+        final Snapshot snapshot;
+        final int playerX, playerY, radius;
+        final int minX, maxX, minY, maxY;
+
+        StripTask(Snapshot snapshot, int playerX, int playerY, int radius, int minX, int maxX, int minY, int maxY) {
+            this.snapshot = snapshot;
+            this.playerX = playerX;
+            this.playerY = playerY;
+            this.radius = radius;
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        @Override
+        protected Candidate compute() {
+            if (maxY - minY + 1 > stripRows) {
+                int mid = (minY + maxY) >>> 1;
+                StripTask lower = new StripTask(snapshot, playerX, playerY, radius, minX, maxX, minY, mid);
+                StripTask upper = new StripTask(snapshot, playerX, playerY, radius, minX, maxX, mid + 1, maxY);
+                upper.fork();
+                Candidate a = lower.compute();
+                Candidate b = upper.join();
+                return b.beats(a) ? b : a;
+            }
+
+            Candidate best = new Candidate();
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (!snapshot.isValid(x, y, radius)) continue;
+
+                    int count = snapshot.countDisk(x, y, radius);
+                    if (count < best.count) continue;
+
+                    int dx = x - playerX, dy = y - playerY;
+                    int dst2 = dx * dx + dy * dy;
+                    if (count > best.count || dst2 < best.dst2) {
+                        best.count = count;
+                        best.dst2 = dst2;
+                        best.x = x;
+                        best.y = y;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package EarthquakeAsteroidMod;
+
+import arc.util.Log;
+
+/**
+ * Fixed-schema event log kept in a preallocated ring buffer.
+ * Recording an event only writes a few numbers, text is built when debug is enabled
+ * or when the buffer is dumped, so the event code paths don't build strings or box values.
+ */
+public class Telemetry {
+    /** Number of records kept, older ones are overwritten */
+    public static final int capacity = 1024;
+
+    /** Prints every record as it is written */
+    public static boolean debug = false;
+
+    /** What happened, with the tag and the meaning of the count/extra fields */
+    public enum Kind {
+        asteroidSpawned("ASTEROID", "size%", "angle"),
+        showerSpawned("ASTEROID", "rocks", "active"),
+        asteroidImpact("ASTEROID", null, null),
+        asteroidDestroyed("ASTEROID", "destroyed", "damaged"),
+        craterPlaced("ASTEROID", "charred", "alien"),
+        craterReplanned("ASTEROID", "edits", null),
+        oresPlaced("ASTEROID", "spawned", "wanted"),
+        unitsHit("ASTEROID", "units", "damage"),
+        asteroidBrokeUp("ASTEROID", "fragments", "active"),
+        fragmentsLanded("ASTEROID", "landed", "destroyed"),
+        fragmentHit("ASTEROID", "damage", null),
+        rocksLanded("ASTEROID", "landed", "destroyed"),
+        quakeTriggered("EARTHQUAKE", "magnitude", "buildings"),
+        quakeEpicenter("EARTHQUAKE", "breakables", null),
+        quakeDestroyed("EARTHQUAKE", "destroyed", "damaged"),
+        targetFound("SHARED", "breakables", "maxRange"),
+        targetMissing("SHARED", null, "maxRange"),
+        targetStale("PLANNER", "breakables", "planned"),
+        syncSent("SYNC", "bytes", "tiles"),
+        syncApplied("SYNC", "tiles", "bytes"),
+        disastersSaved("SAVE", "bytes", null),
+        disastersLoaded("SAVE", "events", "bytes"),
+        rebuildQueued("REBUILD", "plans", "evicted");
+
+        public final String tag, countLabel, extraLabel;
+
+        Kind(String tag, String countLabel, String extraLabel) {
+            this.tag = tag;
+            this.countLabel = countLabel;
+            this.extraLabel = extraLabel;
+        }
+    }
+
+    private static final Kind[] kinds = Kind.values();
+
+    private static final byte[] kind = new byte[capacity];
+    private static final int[] x = new int[capacity], y = new int[capacity], radius = new int[capacity];
+    private static final int[] count = new int[capacity], extra = new int[capacity];
+    private static final long[] nanos = new long[capacity];
+    // Seed of the event, 0 if the record has none
+    private static final long[] seeds = new long[capacity];
+    // Total records written, the next one goes to written % capacity
+    private static long written;
+
+    /**
+     * Records an event
+     * @param type - what happened
+     * @param tileX - tile x position
+     * @param tileY - tile y position
+     * @param r - radius of the event
+     * @param c - main count (meaning depends on the kind)
+     * @param e - extra value (meaning depends on the kind)
+     * @param time - nanoseconds the step took, 0 if not timed
+     * @param seed - seed of the event (see DisasterRandom), 0 if none
+     */
+    public static void record(Kind type, int tileX, int tileY, int r, int c, int e, long time, long seed) {
+        int i = (int) (written % capacity);
+        kind[i] = (byte) type.ordinal();
+        x[i] = tileX;
+        y[i] = tileY;
+        radius[i] = r;
+        count[i] = c;
+        extra[i] = e;
+        nanos[i] = time;
+        seeds[i] = seed;
+        written++;
+
+        if (debug) Log.info(format(i));
+    }
+
+    public static void record(Kind type, int tileX, int tileY, int r, int c, int e, long time) {
+        record(type, tileX, tileY, r, c, e, time, 0L);
+    }
+
+    public static void record(Kind type, int tileX, int tileY, int r, int c) {
+        record(type, tileX, tileY, r, c, 0, 0L);
+    }
+
+    /**
+     * @return number of records currently in the buffer
+     */
+    public static int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    /**
+     * Prints every record in the buffer, oldest first
+     */
+    public static void dump() {
+        int size = size();
+        Log.info("[TELEMETRY] " + size + " records (" + written + " total)");
+        for (int n = 0; n < size; n++) {
+            Log.info(format((int) ((written - size + n) % capacity)));
+        }
+    }
+
+    /**
+     * Clears the buffer
+     */
+    public static void clear() {
+        written = 0;
+    }
+
+    private static String format(int i) {
+        Kind type = kinds[kind[i]];
+        StringBuilder out = new StringBuilder(96);
+        out.append('[').append(type.tag).append("] ").append(type.name())
+                .append(" at (").append(x[i]).append(", ").append(y[i]).append(") r=").append(radius[i]);
+
+        if (type.countLabel != null) out.append(' ').append(type.countLabel).append('=').append(count[i]);
+        if (type.extraLabel != null) out.append(' ').append(type.extraLabel).append('=').append(extra[i]);
+        if (nanos[i] != 0) out.append(' ').append(nanos[i] / 1000).append("us");
+        if (seeds[i] != 0) out.append(" seed=").append(Long.toHexString(seeds[i]));
+        return out.toString();
+    }
+}
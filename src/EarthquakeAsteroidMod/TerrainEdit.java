@@ -0,0 +1,317 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.geom.Point2;
+import arc.struct.IntIntMap;
+import arc.struct.IntSeq;
+import arc.struct.IntSet;
+import mindustry.Vars;
+import mindustry.content.Blocks;
+import mindustry.gen.Building;
+import mindustry.world.Block;
+import mindustry.world.Tile;
+import mindustry.world.blocks.environment.Floor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Queues the block, floor and overlay edits of a whole disaster and applies them in one pass.
+ * Each edit call on a Tile refreshes the renderer caches, pathfinder and minimap on its own;
+ * here the raw writes are done with the world in generating mode and every edited tile is then
+ * notified once (by the game for the buildings it kills, here for the rest), so a crater costs one
+ * update per tile instead of one per call.
+ */
+public class TerrainEdit {
+    private static final int unchanged = -1;
+
+    // One entry per edited tile, floors/overlays hold content ids or unchanged
+    private final IntSeq positions = new IntSeq();
+    private final IntSeq floors = new IntSeq();
+    private final IntSeq overlays = new IntSeq();
+    private final IntSeq removals = new IntSeq();
+    // Packed position -> entry index
+    private final IntIntMap entries = new IntIntMap();
+    // Footprints of the buildings killed by the last apply, already notified by the game
+    private final IntSet killedTiles = new IntSet();
+
+    private int entry(int pos) {
+        int index = entries.get(pos, -1);
+        if (index != -1) return index;
+
+        index = positions.size;
+        entries.put(pos, index);
+        positions.add(pos);
+        floors.add(unchanged);
+        overlays.add(unchanged);
+        removals.add(0);
+        return index;
+    }
+
+    /**
+     * Queues a floor change
+     * @param tile - tile to change
+     * @param floor - new floor
+     */
+    public void setFloor(Tile tile, Block floor) {
+        setFloor(tile.pos(), floor.id);
+    }
+
+    /**
+     * Queues a floor change, by position so it can be built away from the world (e.g. on a worker thread)
+     * @param pos - packed position of the tile
+     * @param floor - content id of the new floor
+     */
+    public void setFloor(int pos, int floor) {
+        floors.items[entry(pos)] = floor;
+    }
+
+    /**
+     * Queues an overlay change
+     * @param tile - tile to change
+     * @param overlay - new overlay, air to clear it
+     */
+    public void setOverlay(Tile tile, Block overlay) {
+        setOverlay(tile.pos(), overlay.id);
+    }
+
+    /**
+     * Queues an overlay change
+     * @param pos - packed position of the tile
+     * @param overlay - content id of the new overlay, air to clear it
+     */
+    public void setOverlay(int pos, int overlay) {
+        overlays.items[entry(pos)] = overlay;
+    }
+
+    /**
+     * Queues the removal of the block on a tile, killing its building
+     * @param tile - tile to clear
+     */
+    public void removeBlock(Tile tile) {
+        removeBlock(tile.pos());
+    }
+
+    /**
+     * Queues the removal of the block on a tile, killing its building
+     * @param pos - packed position of the tile
+     */
+    public void removeBlock(int pos) {
+        removals.items[entry(pos)] = 1;
+    }
+
+    /**
+     * @param tile - tile to check
+     * @return the floor the tile will have once the edits are applied
+     */
+    public Floor floor(Tile tile) {
+        int id = floorId(tile.pos());
+        return id == unchanged ? tile.floor() : Vars.content.block(id).asFloor();
+    }
+
+    /**
+     * @param pos - packed position of the tile
+     * @return content id of the queued floor, -1 if the floor is unchanged
+     */
+    public int floorId(int pos) {
+        int index = entries.get(pos, -1);
+        return index == -1 ? unchanged : floors.items[index];
+    }
+
+    /**
+     * @param pos - packed position of the tile
+     * @return content id of the queued overlay, -1 if the overlay is unchanged
+     */
+    public int overlayId(int pos) {
+        int index = entries.get(pos, -1);
+        return index == -1 ? unchanged : overlays.items[index];
+    }
+
+    /**
+     * @return number of tiles with queued edits
+     */
+    public int size() {
+        return positions.size;
+    }
+
+    /**
+     * Applies every queued edit and clears the queue
+     */
+    public void apply() {
+        int size = positions.size;
+        int[] pos = positions.items;
+
+        // The server sends the whole edit to the clients as one packet
+        if (Vars.net.server() && size > 0) TileSync.send(this);
+
+        // Raw writes first, the world skips its change notifications and cache refreshes while generating.
+        // Blocks without a building (boulders) are cleared here too, buildings are killed below
+        boolean generating = Vars.world.isGenerating();
+        Vars.world.setGenerating(true);
+        try {
+            for (int i = 0; i < size; i++) {
+                Tile tile = Vars.world.tile(pos[i]);
+                if (tile == null) continue;
+
+                if (removals.items[i] != 0 && tile.build == null && tile.block() != Blocks.air) tile.setBlock(Blocks.air);
+                if (floors.items[i] != unchanged) tile.setFloor(Vars.content.block(floors.items[i]).asFloor());
+                if (overlays.items[i] != unchanged) tile.setOverlay(Vars.content.block(overlays.items[i]));
+            }
+        } finally {
+            Vars.world.setGenerating(generating);
+        }
+
+        // Buildings go through the normal destruction path (effects, power graphs, team data), which
+        // notifies and recaches their whole footprint, new floors included.
+        // killed() runs it locally, kill() would also send one packet per building to the clients.
+        // The ledger runs on clients too, so they queue the same rebuild plans as the server
+        killedTiles.clear();
+        for (int i = 0; i < size; i++) {
+            if (removals.items[i] == 0) continue;
+            Tile tile = Vars.world.tile(pos[i]);
+            if (tile == null || tile.build == null || !tile.build.isValid()) continue;
+
+            Building build = tile.build;
+            int blockSize = build.block.size, offset = -(blockSize - 1) / 2;
+            for (int dx = 0; dx < blockSize; dx++) {
+                for (int dy = 0; dy < blockSize; dy++) {
+                    killedTiles.add(Point2.pack(build.tile.x + dx + offset, build.tile.y + dy + offset));
+                }
+            }
+            RebuildLedger.record(build);
+            build.killed();
+        }
+
+        // One notification per other edited tile (pathfinder, indexer, minimap, density grid);
+        // recacheTile only marks the render chunk, so each floor chunk is rebuilt once
+        boolean render = !Vars.headless && Vars.renderer != null;
+        for (int i = 0; i < size; i++) {
+            if (killedTiles.contains(pos[i])) continue;
+            Tile tile = Vars.world.tile(pos[i]);
+            if (tile == null) continue;
+
+            Vars.world.notifyChanged(tile);
+            if (render && (floors.items[i] != unchanged || overlays.items[i] != unchanged)) {
+                Vars.renderer.blocks.floor.recacheTile(tile);
+            }
+        }
+
+        clear();
+    }
+
+    /**
+     * @param index - index of the edit, 0 to size - 1
+     * @return packed position of the edited tile
+     */
+    public int position(int index) {
+        return positions.items[index];
+    }
+
+    /**
+     * @param width - width of the world, tile index is x + y * width
+     * @return (tile index << 32) | entry for every queued edit, sorted into tile index order
+     */
+    long[] order(int width) {
+        int size = positions.size;
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            int pos = positions.items[i];
+            order[i] = ((long) (Point2.x(pos) + Point2.y(pos) * width) << 32) | i;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     * Writes queued edits as runs of consecutive tiles sharing the same edit.
+     * Craters and quake damage are mostly whole row segments of one floor or of removed blocks,
+     * so a run costs a few bytes however long it is.
+     * @param out - stream to write to
+     * @param order - result of order
+     * @param from - first index in order to write
+     * @param to - index in order to stop at, exclusive
+     */
+    void write(DataOutputStream out, long[] order, int from, int to) throws IOException {
+        int end = 0;
+        for (int i = from; i < to; ) {
+            int entry = (int) order[i], index = (int) (order[i] >>> 32);
+            int length = 1;
+            while (i + length < to && (int) (order[i + length] >>> 32) == index + length && sameEdit(entry, (int) order[i + length])) {
+                length++;
+            }
+
+            writeVarInt(out, index - end);
+            writeVarInt(out, length);
+            int mask = (removals.items[entry] != 0 ? 1 : 0) | (floors.items[entry] != unchanged ? 2 : 0) | (overlays.items[entry] != unchanged ? 4 : 0);
+            out.writeByte(mask);
+            if ((mask & 2) != 0) out.writeShort(floors.items[entry]);
+            if ((mask & 4) != 0) out.writeShort(overlays.items[entry]);
+
+            end = index + length;
+            i += length;
+        }
+
+        // A run of length 0 ends the edit
+        writeVarInt(out, 0);
+        writeVarInt(out, 0);
+    }
+
+    /**
+     * Queues the edits written by write
+     * @param in - stream to read from
+     * @param width - width of the world
+     */
+    void read(DataInputStream in, int width) throws IOException {
+        int index = 0;
+        while (true) {
+            index += readVarInt(in);
+            int length = readVarInt(in);
+            if (length == 0) break;
+
+            int mask = in.readUnsignedByte();
+            int floor = (mask & 2) != 0 ? in.readShort() : unchanged;
+            int overlay = (mask & 4) != 0 ? in.readShort() : unchanged;
+
+            for (int i = index; i < index + length; i++) {
+                int pos = Point2.pack(i % width, i / width);
+                if ((mask & 1) != 0) removeBlock(pos);
+                if (floor != unchanged) setFloor(pos, floor);
+                if (overlay != unchanged) setOverlay(pos, overlay);
+            }
+            index += length;
+        }
+    }
+
+    private boolean sameEdit(int a, int b) {
+        return removals.items[a] == removals.items[b] && floors.items[a] == floors.items[b] && overlays.items[a] == overlays.items[b];
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    /**
+     * Drops every queued edit, keeping the arrays
+     */
+    public void clear() {
+        positions.clear();
+        floors.clear();
+        overlays.clear();
+        removals.clear();
+        entries.clear();
+    }
+}
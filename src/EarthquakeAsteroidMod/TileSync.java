@@ -0,0 +1,131 @@
+package EarthquakeAsteroidMod;
+
+import arc.math.geom.Point2;
+import arc.util.Log;
+import arc.util.Time;
+import arc.util.io.Reads;
+import arc.util.io.Writes;
+import mindustry.Vars;
+import mindustry.net.Net;
+import mindustry.net.Packet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sends the terrain edits of the server to the clients.
+ * Disasters only run on the server, every applied TerrainEdit goes out as one packet holding
+ * runs of consecutive tiles with the same edit (see TerrainEdit.write), deflated. Clients apply it
+ * as one batch, instead of getting one packet per removed building and per changed tile.
+ */
+public class TileSync {
+    public static void init() {
+        Net.registerPacket(TileDeltaPacket::new);
+    }
+
+    /** Compressed bytes above which an edit is split into several packets */
+    public static int maxPacketBytes = 4096;
+
+    /**
+     * Encodes an edit and sends it to every client
+     * @param edit - edit about to be applied on the server
+     */
+    static void send(TerrainEdit edit) {
+        long start = Time.nanos();
+        int width = Vars.world.width(), height = Vars.world.height();
+        long[] order = edit.order(width);
+        int bytes = send(edit, order, 0, order.length, width, height);
+
+        int pos = edit.position(0);
+        long nanos = Time.timeSinceNanos(start);
+        PhaseTimes.record(PhaseTimes.Phase.syncEncode, nanos);
+        Telemetry.record(Telemetry.Kind.syncSent, Point2.x(pos), Point2.y(pos), 0, bytes, edit.size(), nanos);
+    }
+
+    // Sends order[from, to), halving it until each part fits in a packet, returns the bytes sent
+    private static int send(TerrainEdit edit, long[] order, int from, int to, int width, int height) {
+        byte[] data = encode(edit, order, from, to);
+        if (data == null) return 0;
+
+        if (data.length > maxPacketBytes && to - from > 1) {
+            int mid = (from + to) >>> 1;
+            return send(edit, order, from, mid, width, height) + send(edit, order, mid, to, width, height);
+        }
+
+        TileDeltaPacket packet = new TileDeltaPacket();
+        packet.width = width;
+        packet.height = height;
+        packet.data = data;
+        Vars.net.send(packet, true);
+        return data.length;
+    }
+
+    private static byte[] encode(TerrainEdit edit, long[] order, int from, int to) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            edit.write(out, order, from, to);
+        } catch (IOException e) {
+            Log.err("[SYNC] Could not encode tile edit", e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Applies an edit received from the server
+     * @param packet - received packet
+     */
+    static void receive(TileDeltaPacket packet) {
+        if (packet.width != Vars.world.width() || packet.height != Vars.world.height()) {
+            Log.warn("[SYNC] Tile edit for a " + packet.width + "x" + packet.height + " world ignored");
+            return;
+        }
+
+        long start = Time.nanos();
+        TerrainEdit edit = new TerrainEdit();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(packet.data)))) {
+            edit.read(in, packet.width);
+        } catch (IOException e) {
+            Log.err("[SYNC] Could not decode tile edit", e);
+            return;
+        }
+        if (edit.size() == 0) return;
+
+        int pos = edit.position(0), tiles = edit.size();
+        edit.apply();
+        long nanos = Time.timeSinceNanos(start);
+        PhaseTimes.record(PhaseTimes.Phase.syncApply, nanos);
+        Telemetry.record(Telemetry.Kind.syncApplied, Point2.x(pos), Point2.y(pos), 0, tiles, packet.data.length, nanos);
+    }
+
+    /** Deflated tile edit, sent by the server after each applied edit */
+    public static class TileDeltaPacket extends Packet {
+        public int width, height;
+        public byte[] data;
+
+        @Override
+        public void write(Writes write) {
+            write.s(width);
+            write.s(height);
+            write.i(data.length);
+            write.b(data);
+        }
+
+        @Override
+        public void read(Reads read) {
+            width = read.s();
+            height = read.s();
+            data = read.b(read.i());
+        }
+
+        @Override
+        public void handleClient() {
+            receive(this);
+        }
+    }
+}